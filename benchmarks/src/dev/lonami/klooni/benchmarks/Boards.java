@@ -0,0 +1,89 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.benchmarks;
+
+import java.util.Random;
+
+import dev.lonami.klooni.engine.BitBoard;
+import dev.lonami.klooni.engine.Placements;
+import dev.lonami.klooni.engine.Rules;
+import dev.lonami.klooni.engine.Shape;
+
+// The boards every benchmark is run against. They are always built from
+// the same seed, so all the runs measure exactly the same boards.
+public enum Boards {
+    // Nothing on it, every shape fits everywhere
+    EMPTY {
+        @Override
+        boolean done(BitBoard board) {
+            return true;
+        }
+    },
+    // About half of the cells are filled
+    HALF {
+        @Override
+        boolean done(BitBoard board) {
+            return board.filledCount() >= board.size * board.size / 2;
+        }
+    },
+    // The shapes in the hand can only be put in a couple of places
+    NEAR_GAME_OVER {
+        @Override
+        boolean done(BitBoard board) {
+            int count = 0;
+            for (Shape shape : hand())
+                count += board.countPlacements(shape);
+
+            return count <= 2;
+        }
+    };
+
+    private static final long SEED = 1010L;
+
+    // Determines whether the board is already as full as it should be
+    abstract boolean done(BitBoard board);
+
+    // A new board of the default size, filled by putting random shapes on
+    // random places (and clearing the lines they complete, as in a real game)
+    // but never so full that the hand can't be put anymore.
+    public BitBoard create() {
+        final Random random = new Random(SEED);
+        final BitBoard board = new BitBoard(Placements.DEFAULT_SIZE);
+        final BitBoard previous = new BitBoard(board);
+        final long[] mask = board.newMask();
+
+        while (!done(board)) {
+            final Shape shape = Shape.random(random);
+            final int x = random.nextInt(board.size);
+            final int y = random.nextInt(board.size);
+            previous.set(board);
+            if (board.put(shape, x, y, shape.colorIndex) && board.completeLines(shape, x, y, mask) > 0)
+                board.clear(mask);
+
+            if (Rules.isGameOver(board, hand()))
+                board.set(previous);
+        }
+        return board;
+    }
+
+    // The hand the game over checks are made against: the big L, a long
+    // line and the small square, so most of the time all of them are checked
+    public static Shape[] hand() {
+        return new Shape[]{Shape.fromIndex(8, 0), Shape.fromIndex(6, 0), Shape.fromIndex(1, 0)};
+    }
+}
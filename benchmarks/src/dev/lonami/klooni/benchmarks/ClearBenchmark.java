@@ -0,0 +1,86 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import dev.lonami.klooni.engine.BitBoard;
+import dev.lonami.klooni.engine.Shape;
+
+// Finding and clearing the complete lines, as done by Board.clearComplete.
+//
+// A row and a column are completed on a copy of the board before the
+// measurements start, and every invocation restores that copy first
+// (see restore, which measures only that part, to tell both apart).
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ClearBenchmark {
+
+    @Param
+    public Boards boards;
+
+    private BitBoard complete;
+    private BitBoard board;
+    private long[] mask;
+
+    @Setup
+    public void setup() {
+        complete = boards.create();
+        mask = complete.newMask();
+        for (int i = 0; i < complete.size; ++i) {
+            mask[(i * complete.size) >>> 6] |= 1L << (i * complete.size);
+            mask[i >>> 6] |= 1L << i;
+        }
+        complete.fill(mask, 0);
+        board = new BitBoard(complete);
+    }
+
+    @Benchmark
+    public int restore() {
+        board.set(complete);
+        return board.filledCount();
+    }
+
+    @Benchmark
+    public int clearAllLines() {
+        board.set(complete);
+        final int cleared = board.completeLines(mask);
+        board.clear(mask);
+        return cleared;
+    }
+
+    // Only the lines the last shape was on need to be checked (here, a
+    // 1x1 square put at the corner where the row and the column meet)
+    @Benchmark
+    public int clearLastPutLines() {
+        board.set(complete);
+        final int cleared = board.completeLines(Shape.fromIndex(0, 0), 0, 0, mask);
+        board.clear(mask);
+        return cleared;
+    }
+}
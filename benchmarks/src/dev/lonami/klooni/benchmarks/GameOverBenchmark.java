@@ -0,0 +1,66 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import dev.lonami.klooni.engine.BitBoard;
+import dev.lonami.klooni.engine.Rules;
+import dev.lonami.klooni.engine.Shape;
+
+// The game over check made after every piece is dropped, both
+// scanning the board and with the index of legal moves kept up to date
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GameOverBenchmark {
+
+    @Param
+    public Boards boards;
+
+    private BitBoard scanned;
+    private BitBoard tracked;
+    private Shape[] hand;
+
+    @Setup
+    public void setup() {
+        scanned = boards.create();
+        tracked = boards.create();
+        tracked.trackLegalMoves();
+        hand = Boards.hand();
+    }
+
+    @Benchmark
+    public boolean scan() {
+        return Rules.isGameOver(scanned, hand);
+    }
+
+    @Benchmark
+    public boolean tracked() {
+        return Rules.isGameOver(tracked, hand);
+    }
+}
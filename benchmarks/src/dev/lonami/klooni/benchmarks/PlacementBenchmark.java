@@ -0,0 +1,76 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import dev.lonami.klooni.engine.BitBoard;
+import dev.lonami.klooni.engine.Shape;
+
+// Checks for where a shape can be put, as done by Board.canPutPiece
+// (on every drag and drop) and to find the available placements
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PlacementBenchmark {
+
+    @Param
+    public Boards boards;
+
+    private BitBoard board;
+    private Shape shape;
+    private int[] entries;
+
+    @Setup
+    public void setup() {
+        board = boards.create();
+        shape = Shape.fromIndex(8, 0);
+        entries = new int[board.placements.count(shape)];
+    }
+
+    // Tries the shape at every cell, including the ones where it is out of bounds
+    @Benchmark
+    public int canPutEverywhere() {
+        int count = 0;
+        for (int y = 0; y < board.size; ++y)
+            for (int x = 0; x < board.size; ++x)
+                if (board.canPut(shape, x, y))
+                    count++;
+
+        return count;
+    }
+
+    @Benchmark
+    public boolean canPutAnywhere() {
+        return board.canPutAnywhere(shape);
+    }
+
+    @Benchmark
+    public int findPlacements() {
+        return board.findPlacements(shape, entries);
+    }
+}
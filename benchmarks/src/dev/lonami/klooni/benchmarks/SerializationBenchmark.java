@@ -0,0 +1,71 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import dev.lonami.klooni.engine.BitBoard;
+import dev.lonami.klooni.serializer.BinSerializer;
+
+// Saving and loading a board through the BinSerializer, in memory
+// so the measurements don't depend on the speed of the disk
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SerializationBenchmark {
+
+    @Param
+    public Boards boards;
+
+    private BitBoard board;
+    private ByteArrayOutputStream output;
+    private byte[] saved;
+
+    @Setup
+    public void setup() throws IOException {
+        board = boards.create();
+        output = new ByteArrayOutputStream();
+        BinSerializer.serialize(board, output);
+        saved = output.toByteArray();
+    }
+
+    @Benchmark
+    public int save() throws IOException {
+        output.reset();
+        BinSerializer.serialize(board, output);
+        return output.size();
+    }
+
+    @Benchmark
+    public BitBoard load() throws IOException {
+        BinSerializer.deserialize(board, new ByteArrayInputStream(saved));
+        return board;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+import dev.lonami.klooni.engine.BitBoard;
+import dev.lonami.klooni.engine.Shape;
+import dev.lonami.klooni.engine.Solution;
+import dev.lonami.klooni.engine.Solver;
+
+// Solving a whole hand, on a single thread and on all of them. The budget
+// is big enough for every search to finish, so this measures how long
+// the full search takes and not how long it's allowed to run.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SolverBenchmark {
+
+    @Param
+    public Boards boards;
+
+    @Param({"16", "64"})
+    public int width;
+
+    @Param({"false", "true"})
+    public boolean lookahead;
+
+    private static final long BUDGET_MILLIS = 60000L;
+
+    private BitBoard board;
+    private Shape[] hand;
+    private Solver single;
+    private Solver parallel;
+
+    @Setup
+    public void setup() {
+        board = boards.create();
+        hand = Boards.hand();
+        single = create(1);
+        parallel = create(Runtime.getRuntime().availableProcessors());
+    }
+
+    private Solver create(int threads) {
+        final Solver solver = new Solver(threads);
+        solver.setWidth(width);
+        solver.setLookahead(lookahead);
+        return solver;
+    }
+
+    @TearDown
+    public void tearDown() {
+        single.shutdown();
+        parallel.shutdown();
+    }
+
+    @Benchmark
+    public Solution singleThread() {
+        return single.solve(board, hand, BUDGET_MILLIS);
+    }
+
+    @Benchmark
+    public Solution allThreads() {
+        return parallel.solve(board, hand, BUDGET_MILLIS);
+    }
+}
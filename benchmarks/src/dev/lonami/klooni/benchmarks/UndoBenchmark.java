@@ -0,0 +1,101 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import dev.lonami.klooni.engine.BitBoard;
+import dev.lonami.klooni.engine.Shape;
+import dev.lonami.klooni.engine.UndoLog;
+
+// How a move is recorded so it can be undone. Actions used to take a whole
+// snapshot of the board (recordState) and restore it, which record() and
+// restore() stand for. Now Actions and Board record only what the move
+// changed on an UndoLog, which undoLog() measures the way the game does it.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UndoBenchmark {
+
+    @Param
+    public Boards boards;
+
+    private BitBoard board;
+    private BitBoard snapshot;
+
+    private UndoLog undoLog;
+    private long[] mask;
+    private Shape shape;
+    private int x, y;
+
+    @Setup
+    public void setup() {
+        board = boards.create();
+        board.trackLegalMoves();
+        snapshot = new BitBoard(board);
+
+        undoLog = new UndoLog(board);
+        mask = board.newMask();
+        for (Shape s : Boards.hand()) {
+            for (int i = 0; i < board.size * board.size; ++i) {
+                if (shape == null && board.canPut(s, i % board.size, i / board.size)) {
+                    shape = s;
+                    x = i % board.size;
+                    y = i / board.size;
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public BitBoard record() {
+        return new BitBoard(board);
+    }
+
+    // Restoring into a board which keeps the legal moves up to date,
+    // from a snapshot which doesn't (so the index has to be rebuilt)
+    @Benchmark
+    public BitBoard restore() {
+        board.set(snapshot);
+        return board;
+    }
+
+    // A whole move recorded and then undone, in the order Actions.recordMove,
+    // Board.clearComplete and Actions.recordScore do it on every move
+    @Benchmark
+    public BitBoard undoLog() {
+        board.put(shape, x, y, shape.colorIndex);
+        undoLog.recordPut(shape, x, y, 0, 0);
+        if (board.completeLines(shape, x, y, mask) > 0) {
+            undoLog.recordClear(mask);
+            board.clear(mask);
+        }
+        undoLog.recordScore(shape.area);
+        undoLog.undo();
+        return board;
+    }
+}
@@ -0,0 +1,61 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.game;
+
+import com.badlogic.gdx.math.Vector2;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import dev.lonami.klooni.engine.SplitMixRandom;
+
+// Piece.calculateGravityCenter is called on every frame a piece is
+// being dragged. This lives on the same package so it can be reached.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PieceBenchmark {
+
+    private Piece piece;
+    private final Vector2 center = new Vector2();
+
+    @Setup
+    public void setup() {
+        final SplitMixRandom random = new SplitMixRandom(1010L);
+        Piece candidate;
+        do {
+            candidate = Piece.random(random);
+        } while (candidate.colorIndex != 8);
+
+        piece = candidate;
+        piece.pos.set(120f, 80f);
+        piece.cellSize = 24f;
+    }
+
+    @Benchmark
+    public Vector2 calculateGravityCenter() {
+        return piece.calculateGravityCenter(center);
+    }
+}
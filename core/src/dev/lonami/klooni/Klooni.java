@@ -27,15 +27,19 @@ import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.scenes.scene2d.ui.Skin;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
+import dev.lonami.klooni.effects.EffectGovernor;
 import dev.lonami.klooni.effects.EvaporateEffectFactory;
 import dev.lonami.klooni.effects.ExplodeEffectFactory;
 import dev.lonami.klooni.effects.SpinEffectFactory;
 import dev.lonami.klooni.effects.VanishEffectFactory;
 import dev.lonami.klooni.effects.WaterdropEffectFactory;
 import dev.lonami.klooni.interfaces.IEffectFactory;
+import dev.lonami.klooni.screens.GameScreen;
 import dev.lonami.klooni.screens.MainMenuScreen;
 import dev.lonami.klooni.screens.TransitionScreen;
 
@@ -56,11 +60,17 @@ public class Klooni extends Game {
             new ExplodeEffectFactory(),
     };
 
+    // Measures how long frames take to lower the detail of the effects if they're slow
+    public static final EffectGovernor effectGovernor = new EffectGovernor();
+
     private Map<String, Sound> effectSounds;
     public Skin skin;
 
     public final ShareChallenge shareChallenge;
 
+    // Replay to play back as soon as the game starts, if any
+    private final File replay;
+
     public static boolean onDesktop;
 
     private final static float SCORE_TO_MONEY = 1f / 100f;
@@ -75,7 +85,12 @@ public class Klooni extends Game {
     // TODO Possibly implement a 'ShareChallenge'
     //      for other platforms instead passing null
     public Klooni(final ShareChallenge shareChallenge) {
+        this(shareChallenge, null);
+    }
+
+    public Klooni(final ShareChallenge shareChallenge, final File replay) {
         this.shareChallenge = shareChallenge;
+        this.replay = replay;
     }
 
     @Override
@@ -95,7 +110,6 @@ public class Klooni extends Game {
             theme = Theme.getTheme("default");
 
         Gdx.input.setCatchBackKey(true); // To show the pause menu
-        setScreen(new MainMenuScreen(this));
         String effectName = prefs.getString("effectName", "vanish");
         effectSounds = new HashMap<String, Sound>(EFFECTS.length);
         effect = EFFECTS[0];
@@ -105,6 +119,17 @@ public class Klooni extends Game {
                 effect = e;
             }
         }
+
+        // The replay is played back with the effect chosen, so it goes last
+        Screen screen = null;
+        if (replay != null) {
+            try {
+                screen = GameScreen.playback(this, replay);
+            } catch (IOException e) {
+                Gdx.app.error("Klooni", "Cannot play back " + replay, e);
+            }
+        }
+        setScreen(screen == null ? new MainMenuScreen(this) : screen);
     }
 
     //endregion
@@ -116,6 +141,12 @@ public class Klooni extends Game {
         transitionTo(screen, true);
     }
 
+    @Override
+    public void render() {
+        effectGovernor.update(Gdx.graphics.getRawDeltaTime());
+        super.render();
+    }
+
     public void transitionTo(Screen screen, boolean disposeAfter) {
         setScreen(new TransitionScreen(this, getScreen(), screen, disposeAfter));
     }
@@ -128,7 +159,6 @@ public class Klooni extends Game {
     public void dispose() {
         super.dispose();
         skin.dispose();
-        theme.dispose();
         if (effectSounds != null) {
             for (Sound s : effectSounds.values()) {
                 s.dispose();
@@ -198,6 +228,16 @@ public class Klooni extends Game {
         return result;
     }
 
+    public static boolean shouldRecordReplays() {
+        return prefs.getBoolean("recordReplays", false);
+    }
+
+    public static boolean toggleRecordReplays() {
+        final boolean result = !shouldRecordReplays();
+        prefs.putBoolean("recordReplays", result).flush();
+        return result;
+    }
+
     // Themes related
     public static boolean isThemeBought(Theme theme) {
         if (theme.getPrice() == 0)
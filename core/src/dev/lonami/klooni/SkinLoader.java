@@ -18,9 +18,12 @@
 package dev.lonami.klooni;
 
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.graphics.g2d.NinePatch;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.scenes.scene2d.ui.Skin;
 
 public class SkinLoader {
@@ -33,6 +36,8 @@ public class SkinLoader {
 
     private final static float bestMultiplier;
 
+    private static TextureAtlas atlas;
+
     // FIXME this static code is exposed to a race condition and will fail if called class gets loaded before execution of Klooni.create
     static {
         // Use the height to determine the best match
@@ -51,24 +56,23 @@ public class SkinLoader {
     }
 
     static Skin loadSkin() {
-        String folder = "ui/x" + bestMultiplier + "/";
+        // Every image is drawn from the atlas, which goes with the skin so it's disposed with it
+        atlas = loadAtlas();
 
         // Base skin
         Skin skin = new Skin(Gdx.files.internal("skin/uiskin.json"));
+        skin.add("ui", atlas);
 
         // Nine patches
         final int border = (int) (28 * bestMultiplier);
-        skin.add("button_up", new NinePatch(new Texture(
-                Gdx.files.internal(folder + "button_up.png")), border, border, border, border));
-
-        skin.add("button_down", new NinePatch(new Texture(
-                Gdx.files.internal(folder + "button_down.png")), border, border, border, border));
+        skin.add("button_up", new NinePatch(getRegion("button_up"), border, border, border, border));
+        skin.add("button_down", new NinePatch(getRegion("button_down"), border, border, border, border));
 
         for (String id : ids) {
-            skin.add(id + "_texture", new Texture(Gdx.files.internal(folder + id + ".png")));
+            skin.add(id + "_texture", getRegion(id), TextureRegion.class);
         }
 
-        folder = "font/x" + bestMultiplier + "/";
+        String folder = "font/x" + bestMultiplier + "/";
         skin.add("font", new BitmapFont(Gdx.files.internal(folder + "geosans-light64.fnt")));
         skin.add("font_small", new BitmapFont(Gdx.files.internal(folder + "geosans-light32.fnt")));
         skin.add("font_bonus", new BitmapFont(Gdx.files.internal(folder + "the-next-font.fnt")));
@@ -76,8 +80,25 @@ public class SkinLoader {
         return skin;
     }
 
-    public static Texture loadPng(String name) {
-        final String filename = "ui/x" + bestMultiplier + "/" + name;
-        return new Texture(Gdx.files.internal(filename));
+    // The images of every multiplier are packed on a single atlas when building (see packTextures
+    // on build.gradle), so switching from one to another doesn't need to flush the batch
+    private static TextureAtlas loadAtlas() {
+        final FileHandle file = Gdx.files.internal("atlas/ui-x" + bestMultiplier + ".atlas");
+        if (file.exists())
+            return new TextureAtlas(file);
+
+        Gdx.app.log("SkinLoader", "No atlas was packed, every image will use its own texture");
+        return new TextureAtlas();
+    }
+
+    // Finds the image with the given name (such as "cells/basic") on the atlas. If it was not
+    // packed, it's loaded on a texture of its own and added to the atlas, as it used to be.
+    public static TextureRegion getRegion(final String name) {
+        TextureRegion region = atlas.findRegion(name);
+        if (region == null) {
+            final Texture texture = new Texture(Gdx.files.internal("ui/x" + bestMultiplier + "/" + name + ".png"));
+            region = atlas.addRegion(name, texture, 0, 0, texture.getWidth(), texture.getHeight());
+        }
+        return region;
     }
 }
@@ -22,6 +22,7 @@ import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.scenes.scene2d.ui.ImageButton;
 import com.badlogic.gdx.scenes.scene2d.ui.Skin;
 import com.badlogic.gdx.utils.Array;
@@ -53,11 +54,15 @@ public class Theme {
 
     public static Skin skin;
 
-    public Texture cellTexture;
+    // Part of the atlas with every image, so it's not disposed with the theme
+    public TextureRegion cellTexture;
 
     // Save the button styles so the changes here get reflected
     private final ImageButton.ImageButtonStyle[] buttonStyles;
 
+    // How many times the theme was updated, so whatever was drawn with it can tell it changed
+    private int version;
+
     //endregion
 
     //region Constructor
@@ -131,6 +136,7 @@ public class Theme {
 
         final JsonValue json = new JsonReader().parse(handle.readString());
 
+        version++;
         name = handle.nameWithoutExtension();
         displayName = json.getString("name");
         price = json.getInt("price");
@@ -167,8 +173,9 @@ public class Theme {
             cells[i] = new Color((int) Long.parseLong(cellColors.getString(i), 16));
         }
 
+        // The images on the atlas are named without their extension
         String cellTextureFile = json.getString("cell_texture");
-        cellTexture = SkinLoader.loadPng("cells/" + cellTextureFile);
+        cellTexture = SkinLoader.getRegion("cells/" + cellTextureFile.replace(".png", ""));
 
         return this;
     }
@@ -189,6 +196,10 @@ public class Theme {
         return price;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
     public ImageButton.ImageButtonStyle getStyle(int button) {
         return buttonStyles[button];
     }
@@ -221,12 +232,4 @@ public class Theme {
     }
 
     //endregion
-
-    //region Disposal
-
-    void dispose() {
-        cellTexture.dispose();
-    }
-
-    //endregion
 }
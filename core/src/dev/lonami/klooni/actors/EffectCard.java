@@ -19,6 +19,7 @@ package dev.lonami.klooni.actors;
 
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Rectangle;
 
 import dev.lonami.klooni.Klooni;
@@ -59,13 +60,13 @@ public class EffectCard extends ShopCard {
 
     private void setRandomPiece() {
         while (true) {
-            final Piece piece = Piece.random();
-            if (piece.cellCols > 3 || piece.cellRows > 3)
+            final Piece piece = Piece.random(MathUtils.random);
+            if (piece.shape.cols > 3 || piece.shape.rows > 3)
                 continue;
 
             // Try to center it (max size is 3, so center is the second grid bit unless max size)
-            int x = piece.cellCols == 3 ? 0 : 1;
-            int y = piece.cellRows == 3 ? 0 : 1;
+            int x = piece.shape.cols == 3 ? 0 : 1;
+            int y = piece.shape.rows == 3 ? 0 : 1;
             if (board.putPiece(piece, x, y))
                 break; // Should not fail, but if it does, don't break
         }
@@ -0,0 +1,147 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.effects;
+
+import com.badlogic.gdx.Gdx;
+
+// Lowers the detail of the effects when frames take longer than they should, and
+// raises it back once they're fast again for a while, so that clearing many lines
+// at once on a slow device doesn't make the game stutter. Effects ask for the
+// current detail as they're created, and have fewer particles or shorter lives
+// the lower it is.
+//
+// Frame times are smoothed, so a single long frame doesn't change the level,
+// and the level only changes after the frames have been slow (or fast) for a
+// while, lowering quicker than raising so it doesn't go back and forth.
+//
+// What is slow depends on the device: frames are compared against the refresh
+// period of the display, or the fastest frames seen if those are slower (as on
+// devices which never draw more than 30 frames per second).
+public class EffectGovernor {
+
+    //region Members
+
+    // Quality levels, from the cheapest effects to the ones as designed
+    public static final int LOWEST = 0;
+    public static final int HIGHEST = 3;
+
+    // Frames are slow when they take this many times the fastest ones (45 fps at 60 Hz),
+    // and the level can go back up once they're this close to the fastest ones again
+    private static final float LOWER_MARGIN = 4f / 3f;
+    private static final float RAISE_MARGIN = 1.1f;
+
+    // Used until the display tells its refresh rate (or if it doesn't)
+    private static final float DEFAULT_REFRESH_PERIOD = 1f / 60f;
+
+    // How many seconds the frames must be slow (or fast) to change the level
+    private static final float LOWER_AFTER = 0.5f;
+    private static final float RAISE_AFTER = 3f;
+
+    // How much every frame weights on the smoothed frame time, and
+    // the longest one measured (longer ones are hitches, not load)
+    private static final float SMOOTHING = 0.1f;
+    private static final float MAX_FRAME_TIME = 0.1f;
+
+    // The smoothed frame time only means something after this many seconds of frames
+    private static final float WARM_UP = 1f;
+
+    private int level = HIGHEST;
+    private float frameTime = DEFAULT_REFRESH_PERIOD;
+
+    // The seconds a frame takes when the display is refreshed, read on the first
+    // frame, and the fastest smoothed frame time seen since the game started
+    private float refreshPeriod;
+    private float bestFrameTime = Float.MAX_VALUE;
+    private float measuredFor;
+
+    // Seconds the frames have been slow or fast in a row
+    private float slowFor, fastFor;
+
+    //endregion
+
+    //region Private methods
+
+    private static float readRefreshPeriod() {
+        final int refreshRate = Gdx.graphics.getDisplayMode().refreshRate;
+        return refreshRate > 0 ? 1f / refreshRate : DEFAULT_REFRESH_PERIOD;
+    }
+
+    private void setLevel(int level) {
+        this.level = level;
+        slowFor = fastFor = 0f;
+        Gdx.app.log("EffectGovernor", "Effect quality level " + level +
+                " with frames taking " + Math.round(frameTime * 1000f) + "ms");
+    }
+
+    //endregion
+
+    //region Public methods
+
+    // Measures the seconds the last frame took, which should be called once per frame
+    public void update(float delta) {
+        if (refreshPeriod == 0f)
+            refreshPeriod = readRefreshPeriod();
+
+        delta = Math.min(delta, MAX_FRAME_TIME);
+        frameTime += (delta - frameTime) * SMOOTHING;
+        if (measuredFor < WARM_UP) {
+            measuredFor += delta;
+            return;
+        }
+        bestFrameTime = Math.min(bestFrameTime, frameTime);
+
+        // No frame can be faster than the display, so that's what they're compared against
+        // unless the device never got that fast, in which case it's the fastest they got
+        final float fastest = Math.max(refreshPeriod, bestFrameTime);
+        if (frameTime > fastest * LOWER_MARGIN) {
+            fastFor = 0f;
+            slowFor += delta;
+            if (slowFor > LOWER_AFTER && level > LOWEST)
+                setLevel(level - 1);
+        } else if (frameTime < fastest * RAISE_MARGIN) {
+            slowFor = 0f;
+            fastFor += delta;
+            if (fastFor > RAISE_AFTER && level < HIGHEST)
+                setLevel(level + 1);
+        } else {
+            slowFor = fastFor = 0f;
+        }
+    }
+
+    // The current quality level, from LOWEST to HIGHEST
+    public int getLevel() {
+        return level;
+    }
+
+    // The smoothed seconds a frame takes
+    public float getFrameTime() {
+        return frameTime;
+    }
+
+    // How much detail effects should have, 1 at the highest level and 1/4 at the lowest
+    public float getDetail() {
+        return (level + 1f) / (HIGHEST + 1f);
+    }
+
+    // Shortens the given lifetime of an effect down to half at the lowest level
+    public float scaleLifetime(float lifetime) {
+        return lifetime * (0.5f + 0.5f * getDetail());
+    }
+
+    //endregion
+}
@@ -0,0 +1,528 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.effects;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Interpolation;
+import com.badlogic.gdx.math.MathUtils;
+
+import dev.lonami.klooni.Klooni;
+import dev.lonami.klooni.game.Cell;
+
+// Every particle of the effects of a board, such as the shards of a cell
+// exploding or the drop a cell turns into. Instead of an object per particle
+// (and a few vectors and colors each), every property is kept on its own array
+// indexed by particle, so clearing lines allocates nothing once the arrays have
+// grown big enough, and every particle is updated in the same loop.
+//
+// Live particles are always the first ones, so when one dies the last one
+// takes its slot. The arrays only grow if more are alive than ever before,
+// up to a limit, after which the oldest particles make room for a new one.
+// The particles are also linked from the oldest to the newest, so finding
+// the oldest one doesn't need to look at all of them.
+//
+// Whole lines can be a single particle too, drawn as copies of a cell (each
+// with its own color), but every copy counts against the limit, so it bounds
+// what is drawn.
+//
+// Particles are spawned with spawn(), which leaves them still on the given
+// square, and then set up by the set* methods which take their index.
+//
+// Particles move in steps of a SimulationClock, and are drawn between where
+// they were on the last two, so their position, size and rotation on the step
+// before are kept too.
+public class ParticleSystem {
+
+    //region Members
+
+    // Particles smaller than this can't be seen, so they die
+    private static final float MINIMUM_SIZE = 0.3f;
+
+    // Most particles alive at once (a line counting as one per copy),
+    // so that the cost of a frame is bounded
+    public static final int MAX_PARTICLES = 1024;
+
+    private int count;
+
+    // How many copies all the live particles draw, which is at most MAX_PARTICLES
+    private int copyCount;
+
+    // Position (of the bottom left corner) and motion
+    private float[] x, y;
+    private float[] lastX, lastY;
+    private float[] velX, velY;
+    private float[] accX, accY;
+    private float[] drag;
+
+    // Size, which goes from the initial one to the final one through the curve
+    // as the particle ages, and is smoothed if the smoothing is less than 1.
+    // The pivot is where the particle shrinks towards (0 is the corner, 0.5 the center)
+    private float[] size, lastSize, initialSize, finalSize;
+    private Interpolation[] sizeCurve;
+    private float[] sizeSmoothing;
+    private float[] pivot;
+
+    // Degrees rotated by the time the particle is done
+    private float[] rotation, lastRotation, spin;
+
+    // Horizontal sway around a base position, as a sine wave
+    private float[] swayBase, swayMagnitude, swaySpeed, swayOffset;
+
+    // Color, whose alpha changes every second by the given speed
+    private float[] red, green, blue, alpha, alphaSpeed;
+
+    // Age (negative while waiting to start), how long the curves take to finish
+    // (as its inverse) and how long until the particle dies (which may be never)
+    private float[] age, invDuration, lifetime;
+
+    // What is drawn, with null meaning the cell texture of the current theme
+    private TextureRegion[] texture;
+
+    // How many copies are drawn next to each other (as a line), and in which direction
+    private int[] copies;
+    private boolean[] vertical;
+
+    // The color of every copy (red, green and blue, the alpha is the particle's),
+    // or null if they weren't given one. The arrays of the particles that die are
+    // kept as spares, so they're reused instead of allocated again.
+    private float[][] copyColors;
+    private float[][] spareColors;
+    private int spareCount;
+
+    // The particles spawned right before and after every one (-1 if none),
+    // and the oldest and newest particles alive (-1 if there are none)
+    private int[] older, newer;
+    private int oldest = -1, newest = -1;
+
+    //endregion
+
+    //region Constructor
+
+    public ParticleSystem(int capacity) {
+        allocate(Math.min(capacity, MAX_PARTICLES));
+    }
+
+    //endregion
+
+    //region Private methods
+
+    private void allocate(int capacity) {
+        x = grow(x, capacity);
+        y = grow(y, capacity);
+        lastX = grow(lastX, capacity);
+        lastY = grow(lastY, capacity);
+        velX = grow(velX, capacity);
+        velY = grow(velY, capacity);
+        accX = grow(accX, capacity);
+        accY = grow(accY, capacity);
+        drag = grow(drag, capacity);
+
+        size = grow(size, capacity);
+        lastSize = grow(lastSize, capacity);
+        initialSize = grow(initialSize, capacity);
+        finalSize = grow(finalSize, capacity);
+        sizeSmoothing = grow(sizeSmoothing, capacity);
+        pivot = grow(pivot, capacity);
+        rotation = grow(rotation, capacity);
+        lastRotation = grow(lastRotation, capacity);
+        spin = grow(spin, capacity);
+
+        swayBase = grow(swayBase, capacity);
+        swayMagnitude = grow(swayMagnitude, capacity);
+        swaySpeed = grow(swaySpeed, capacity);
+        swayOffset = grow(swayOffset, capacity);
+
+        red = grow(red, capacity);
+        green = grow(green, capacity);
+        blue = grow(blue, capacity);
+        alpha = grow(alpha, capacity);
+        alphaSpeed = grow(alphaSpeed, capacity);
+
+        age = grow(age, capacity);
+        invDuration = grow(invDuration, capacity);
+        lifetime = grow(lifetime, capacity);
+
+        final Interpolation[] curves = new Interpolation[capacity];
+        final TextureRegion[] textures = new TextureRegion[capacity];
+        final int[] copyCounts = new int[capacity];
+        final boolean[] verticals = new boolean[capacity];
+        final float[][] colors = new float[capacity][];
+        final float[][] spares = new float[capacity][];
+        final int[] olderLinks = new int[capacity];
+        final int[] newerLinks = new int[capacity];
+        if (sizeCurve != null) {
+            System.arraycopy(sizeCurve, 0, curves, 0, count);
+            System.arraycopy(texture, 0, textures, 0, count);
+            System.arraycopy(copies, 0, copyCounts, 0, count);
+            System.arraycopy(vertical, 0, verticals, 0, count);
+            System.arraycopy(copyColors, 0, colors, 0, count);
+            System.arraycopy(spareColors, 0, spares, 0, spareCount);
+            System.arraycopy(older, 0, olderLinks, 0, count);
+            System.arraycopy(newer, 0, newerLinks, 0, count);
+        }
+        sizeCurve = curves;
+        texture = textures;
+        copies = copyCounts;
+        vertical = verticals;
+        copyColors = colors;
+        spareColors = spares;
+        older = olderLinks;
+        newer = newerLinks;
+    }
+
+    private float[] grow(final float[] array, int capacity) {
+        final float[] result = new float[capacity];
+        if (array != null)
+            System.arraycopy(array, 0, result, 0, count);
+
+        return result;
+    }
+
+    // Moves the last particle to the given slot, whose particle died
+    private void kill(int i) {
+        copyCount -= copies[i];
+        unlink(i);
+
+        final int last = --count;
+        if (i != last)
+            relink(last, i);
+
+        x[i] = x[last];
+        y[i] = y[last];
+        lastX[i] = lastX[last];
+        lastY[i] = lastY[last];
+        velX[i] = velX[last];
+        velY[i] = velY[last];
+        accX[i] = accX[last];
+        accY[i] = accY[last];
+        drag[i] = drag[last];
+
+        size[i] = size[last];
+        lastSize[i] = lastSize[last];
+        initialSize[i] = initialSize[last];
+        finalSize[i] = finalSize[last];
+        sizeCurve[i] = sizeCurve[last];
+        sizeSmoothing[i] = sizeSmoothing[last];
+        pivot[i] = pivot[last];
+        rotation[i] = rotation[last];
+        lastRotation[i] = lastRotation[last];
+        spin[i] = spin[last];
+
+        swayBase[i] = swayBase[last];
+        swayMagnitude[i] = swayMagnitude[last];
+        swaySpeed[i] = swaySpeed[last];
+        swayOffset[i] = swayOffset[last];
+
+        red[i] = red[last];
+        green[i] = green[last];
+        blue[i] = blue[last];
+        alpha[i] = alpha[last];
+        alphaSpeed[i] = alphaSpeed[last];
+
+        age[i] = age[last];
+        invDuration[i] = invDuration[last];
+        lifetime[i] = lifetime[last];
+        texture[i] = texture[last];
+        copies[i] = copies[last];
+        vertical[i] = vertical[last];
+
+        // There are never more arrays of colors than slots, so there's always room for a spare
+        if (copyColors[i] != null)
+            spareColors[spareCount++] = copyColors[i];
+        copyColors[i] = copyColors[last];
+        copyColors[last] = null;
+
+        // So the texture can be collected if it's no longer used
+        texture[last] = null;
+    }
+
+    // Takes the particle out of the order they were spawned in
+    private void unlink(int i) {
+        if (older[i] == -1)
+            oldest = newer[i];
+        else
+            newer[older[i]] = newer[i];
+
+        if (newer[i] == -1)
+            newest = older[i];
+        else
+            older[newer[i]] = older[i];
+    }
+
+    // The particle on the given slot is moving to another one, so its neighbours must point there
+    private void relink(int from, int to) {
+        older[to] = older[from];
+        newer[to] = newer[from];
+        if (older[to] == -1)
+            oldest = to;
+        else
+            newer[older[to]] = to;
+
+        if (newer[to] == -1)
+            newest = to;
+        else
+            older[newer[to]] = to;
+    }
+
+    //endregion
+
+    //region Public methods
+
+    // Spawns a particle still on the given square, with the given color,
+    // which lives forever unless it's given a lifetime or it shrinks or
+    // falls out of the screen. Returns the index of the particle.
+    public int spawn(float x, float y, float size, final Color color) {
+        return spawn(x, y, size, 1, false, color);
+    }
+
+    // Spawns a single particle for a whole row or column of cells (given in order),
+    // drawn as a copy of the first cell for every cell, which all move together
+    // but keep the color of their cell
+    public int spawnLine(final Cell[] line) {
+        final Cell first = line[0];
+        final int i = spawn(first.pos.x, first.pos.y, first.size, line.length,
+                line.length > 1 && line[1].pos.x == first.pos.x,
+                Klooni.theme.getCellColor(first.getColorIndex()));
+
+        for (int c = 0; c < line.length; ++c)
+            setCopyColor(i, c, Klooni.theme.getCellColor(line[c].getColorIndex()));
+
+        return i;
+    }
+
+    // Spawns a particle drawn as many copies of the given square next to each
+    // other, to the right or upwards, the same as spawn() otherwise
+    public int spawn(float x, float y, float size, int copies, boolean vertical, final Color color) {
+        if (copies < 1 || copies > MAX_PARTICLES)
+            throw new IllegalArgumentException("Invalid copy count " + copies);
+
+        // The oldest particle is likely the closest to be done, so it's the one least missed
+        while (copyCount + copies > MAX_PARTICLES)
+            kill(oldest);
+
+        // There's room for one more, since every particle draws at least one copy
+        if (count == this.x.length)
+            allocate(Math.min(count * 2, MAX_PARTICLES));
+
+        final int i = count++;
+        copyCount += copies;
+        this.x[i] = lastX[i] = x;
+        this.y[i] = lastY[i] = y;
+        velX[i] = velY[i] = 0f;
+        accX[i] = accY[i] = 0f;
+        drag[i] = 1f;
+
+        this.size[i] = lastSize[i] = initialSize[i] = finalSize[i] = size;
+        sizeCurve[i] = Interpolation.linear;
+        sizeSmoothing[i] = 1f;
+        pivot[i] = 0f;
+        rotation[i] = lastRotation[i] = spin[i] = 0f;
+        swayMagnitude[i] = 0f;
+
+        red[i] = color.r;
+        green[i] = color.g;
+        blue[i] = color.b;
+        alpha[i] = color.a;
+        alphaSpeed[i] = 0f;
+
+        age[i] = 0f;
+        invDuration[i] = 0f;
+        lifetime[i] = Float.POSITIVE_INFINITY;
+        texture[i] = null;
+        this.copies[i] = copies;
+        this.vertical[i] = vertical;
+        copyColors[i] = null;
+
+        older[i] = newest;
+        newer[i] = -1;
+        if (newest == -1)
+            oldest = i;
+        else
+            newer[newest] = i;
+
+        newest = i;
+        return i;
+    }
+
+    // The velocity is multiplied by the drag on every step
+    public void setMotion(int i, float velX, float velY, float accX, float accY, float drag) {
+        this.velX[i] = velX;
+        this.velY[i] = velY;
+        this.accX[i] = accX;
+        this.accY[i] = accY;
+        this.drag[i] = drag;
+    }
+
+    // The curves (size, spin and sway) take the duration to finish, and the particle
+    // dies once it's as old as its lifetime. The age may start being negative
+    // (it waits still) or positive (it starts halfway).
+    public void setTiming(int i, float age, float duration, float lifetime) {
+        this.age[i] = age;
+        invDuration[i] = 1f / duration;
+        this.lifetime[i] = lifetime;
+    }
+
+    public void setShrink(int i, float finalSize, final Interpolation curve, float smoothing, float pivot) {
+        this.finalSize[i] = finalSize;
+        sizeCurve[i] = curve;
+        sizeSmoothing[i] = smoothing;
+        this.pivot[i] = pivot;
+    }
+
+    // Rotates the given degrees around the center of the particle
+    public void setSpin(int i, float degrees) {
+        spin[i] = degrees;
+    }
+
+    // Sways horizontally around its initial position, moving to it a bit every step
+    public void setSway(int i, float magnitude, float speed, float offset) {
+        swayBase[i] = x[i];
+        swayMagnitude[i] = magnitude;
+        swaySpeed[i] = speed;
+        swayOffset[i] = offset;
+    }
+
+    public void setFade(int i, float alpha, float alphaSpeed) {
+        this.alpha[i] = alpha;
+        this.alphaSpeed[i] = alphaSpeed;
+    }
+
+    public void setTexture(int i, final TextureRegion texture) {
+        this.texture[i] = texture;
+    }
+
+    // Gives a copy of a line its own color (but not its alpha, which is the particle's).
+    // The copies without one are drawn with the color of the particle.
+    public void setCopyColor(int i, int copy, final Color color) {
+        if (copyColors[i] == null) {
+            // Lines are almost always as long, so the spares are most likely long enough
+            // (and one which isn't is dropped, so there's never more arrays than slots)
+            float[] colors = spareCount == 0 ? null : spareColors[--spareCount];
+            if (colors == null || colors.length < copies[i] * 3)
+                colors = new float[copies[i] * 3];
+
+            for (int c = 0; c < copies[i]; ++c) {
+                colors[c * 3] = red[i];
+                colors[c * 3 + 1] = green[i];
+                colors[c * 3 + 2] = blue[i];
+            }
+            copyColors[i] = colors;
+        }
+
+        copyColors[i][copy * 3] = color.r;
+        copyColors[i][copy * 3 + 1] = color.g;
+        copyColors[i][copy * 3 + 2] = color.b;
+    }
+
+    // Moves every particle by a step, killing those which are done or have fallen
+    // below the screen, given where the origin of the particles is on it (the
+    // same contract as IEffect.update, so nothing here allocates either)
+    public void update(float dt, float originX, float originY) {
+        final float bottom = -originY;
+        for (int i = 0; i < count; ) {
+            lastX[i] = x[i];
+            lastY[i] = y[i];
+            lastSize[i] = size[i];
+            lastRotation[i] = rotation[i];
+
+            age[i] += dt;
+            final float progress = MathUtils.clamp(age[i] * invDuration[i], 0f, 1f);
+
+            velX[i] = (velX[i] + accX[i] * dt) * drag[i];
+            velY[i] = (velY[i] + accY[i] * dt) * drag[i];
+            x[i] += velX[i] * dt;
+            y[i] += velY[i] * dt;
+            if (swayMagnitude[i] != 0f) {
+                x[i] = MathUtils.lerp(x[i], swayBase[i] +
+                        MathUtils.sin(swayOffset[i] + age[i] * swaySpeed[i]) * swayMagnitude[i], 0.3f);
+            }
+
+            size[i] = MathUtils.lerp(size[i],
+                    sizeCurve[i].apply(initialSize[i], finalSize[i], progress), sizeSmoothing[i]);
+
+            if (spin[i] != 0f)
+                rotation[i] = Interpolation.sine.apply(0f, spin[i], progress);
+
+            alpha[i] = MathUtils.clamp(alpha[i] + alphaSpeed[i] * dt, 0f, 1f);
+
+            // The top is that of the last copy if the particle is a column
+            final float top = y[i] + size[i] + (vertical[i] ? (copies[i] - 1) * initialSize[i] : 0f);
+            if (age[i] > lifetime[i] || size[i] < MINIMUM_SIZE || top < bottom)
+                kill(i); // the last particle is now at i, so it's updated next
+            else
+                ++i;
+        }
+    }
+
+    // Draws every particle between its last two steps, as given by t (from 0 to 1)
+    public void draw(final Batch batch, float t) {
+        for (int i = 0; i < count; ++i) {
+            final TextureRegion region = texture[i] == null ? Klooni.theme.cellTexture : texture[i];
+            final float drawSize = MathUtils.lerp(lastSize[i], size[i], t);
+            final float offset = (initialSize[i] - drawSize) * pivot[i];
+            final float drawX = MathUtils.lerp(lastX[i], x[i], t) + offset;
+            final float drawY = MathUtils.lerp(lastY[i], y[i], t) + offset;
+            final float drawRotation = MathUtils.lerp(lastRotation[i], rotation[i], t);
+
+            // The copies of a line are as far apart as the cells were
+            final float stepX = vertical[i] ? 0f : initialSize[i];
+            final float stepY = vertical[i] ? initialSize[i] : 0f;
+
+            final float[] colors = copyColors[i];
+            batch.setColor(red[i], green[i], blue[i], alpha[i]);
+            for (int c = 0; c < copies[i]; ++c) {
+                if (colors != null)
+                    batch.setColor(colors[c * 3], colors[c * 3 + 1], colors[c * 3 + 2], alpha[i]);
+
+                if (drawRotation == 0f) {
+                    batch.draw(region, drawX + c * stepX, drawY + c * stepY, drawSize, drawSize);
+                } else {
+                    final float half = drawSize * 0.5f;
+                    batch.draw(region, drawX + c * stepX, drawY + c * stepY,
+                            half, half, drawSize, drawSize, 1f, 1f, drawRotation);
+                }
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public void clear() {
+        for (int i = 0; i < count; ++i) {
+            texture[i] = null;
+            if (copyColors[i] != null) {
+                spareColors[spareCount++] = copyColors[i];
+                copyColors[i] = null;
+            }
+        }
+
+        count = 0;
+        copyCount = 0;
+        oldest = newest = -1;
+    }
+
+    //endregion
+}
@@ -17,19 +17,20 @@
 */
 package dev.lonami.klooni.effects;
 
-import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.graphics.Color;
-import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.math.Interpolation;
-import com.badlogic.gdx.math.Matrix4;
 import com.badlogic.gdx.math.Vector2;
 
+import dev.lonami.klooni.Klooni;
 import dev.lonami.klooni.game.Cell;
 import dev.lonami.klooni.interfaces.IEffect;
 import dev.lonami.klooni.interfaces.IEffectFactory;
 
 
 public class SpinEffectFactory implements IEffectFactory {
+    private static final float LIFETIME = 2.0f;
+
+    private static final float TOTAL_ROTATION = 600;
+
     @Override
     public String getName() {
         return "spin";
@@ -46,60 +47,24 @@ public class SpinEffectFactory implements IEffectFactory {
     }
 
     @Override
-    public IEffect create(Cell deadCell, Vector2 culprit) {
-        IEffect effect = new SpinEffect();
-        effect.setInfo(deadCell, culprit);
-        return effect;
+    public IEffect create(Cell deadCell, Vector2 culprit, ParticleSystem particles) {
+        spin(particles, particles.spawn(deadCell.pos.x, deadCell.pos.y, deadCell.size,
+                Klooni.theme.getCellColor(deadCell.getColorIndex())));
+        return null;
     }
 
-
-    private class SpinEffect implements IEffect {
-        private float age;
-        private Vector2 pos;
-        private float size;
-        private Color color;
-
-        private static final float LIFETIME = 2.0f;
-        private static final float INV_LIFETIME = 1.0f / LIFETIME;
-
-        private static final float TOTAL_ROTATION = 600;
-
-        @Override
-        public void setInfo(Cell deadCell, Vector2 culprit) {
-            age = 0;
-            pos = deadCell.pos.cpy();
-            size = deadCell.size;
-            color = deadCell.getColorCopy();
-        }
-
-        @Override
-        public void draw(Batch batch) {
-            age += Gdx.graphics.getDeltaTime();
-
-            final float progress = age * INV_LIFETIME;
-            final float currentSize = Interpolation.pow2In.apply(size, 0, progress);
-            final float currentRotation = Interpolation.sine.apply(0, TOTAL_ROTATION, progress);
-
-            final Matrix4 original = batch.getTransformMatrix().cpy();
-            final Matrix4 rotated = batch.getTransformMatrix();
-
-            final float disp =
-                    +0.5f * (size - currentSize) // the smaller, the more we need to "push" to center
-                            + currentSize * 0.5f; // center the cell for rotation
-
-            rotated.translate(pos.x + disp, pos.y + disp, 0);
-            rotated.rotate(0, 0, 1, currentRotation);
-            rotated.translate(currentSize * -0.5f, currentSize * -0.5f, 0); // revert centering for rotation
-
-            batch.setTransformMatrix(rotated);
-            Cell.draw(color, batch, 0, 0, currentSize);
-            batch.setTransformMatrix(original);
-        }
-
-        @Override
-        public boolean isDone() {
-            return age > LIFETIME;
-        }
+    // Every cell of the line spins at once, each with its own color
+    @Override
+    public IEffect createLine(Cell[] line, Vector2 culprit, ParticleSystem particles) {
+        spin(particles, particles.spawnLine(line));
+        return null;
     }
 
+    private void spin(ParticleSystem particles, int i) {
+        // Shrinks towards its center while it spins around it
+        final float lifetime = Klooni.effectGovernor.scaleLifetime(LIFETIME);
+        particles.setTiming(i, 0f, lifetime, lifetime);
+        particles.setShrink(i, 0f, Interpolation.pow2In, 1f, 0.5f);
+        particles.setSpin(i, TOTAL_ROTATION);
+    }
 }
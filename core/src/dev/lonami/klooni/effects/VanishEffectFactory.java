@@ -17,19 +17,18 @@
 */
 package dev.lonami.klooni.effects;
 
-import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.graphics.Color;
-import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.math.Interpolation;
-import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
 
+import dev.lonami.klooni.Klooni;
 import dev.lonami.klooni.game.Cell;
 import dev.lonami.klooni.interfaces.IEffect;
 import dev.lonami.klooni.interfaces.IEffectFactory;
 
 
 public class VanishEffectFactory implements IEffectFactory {
+    private static final float LIFETIME = 1.0f;
+
     @Override
     public String getName() {
         return "vanish";
@@ -46,72 +45,38 @@ public class VanishEffectFactory implements IEffectFactory {
     }
 
     @Override
-    public IEffect create(Cell deadCell, Vector2 culprit) {
-        IEffect effect = new VanishEffect();
-        effect.setInfo(deadCell, culprit);
-        return effect;
-    }
+    public IEffect create(Cell deadCell, Vector2 culprit, ParticleSystem particles) {
+        final int i = particles.spawn(deadCell.pos.x, deadCell.pos.y, deadCell.size,
+                Klooni.theme.getCellColor(deadCell.getColorIndex()));
 
+        vanish(particles, i, deadCell, culprit);
+        return null;
+    }
 
-    private class VanishEffect implements IEffect {
-        private Cell cell;
-
-        private Color vanishColor;
-        private float vanishSize;
-        private float vanishElapsed;
-        private float vanishLifetime;
-
-        private final static float MINIMUM_SIZE = 0.3f;
-
-        VanishEffect() {
-            vanishElapsed = Float.POSITIVE_INFINITY;
-        }
-
-        @Override
-        public void setInfo(Cell deadCell, Vector2 culprit) {
-            cell = deadCell;
-
-            vanishSize = cell.size;
-            vanishColor = cell.getColorCopy();
-            vanishLifetime = 1f;
-
-            // The vanish distance is this measure (distance² + size³ * 20% size)
-            // because it seems good enough. The more the distance, the more the
-            // delay, but we decrease the delay depending on the cell size too or
-            // it would be way too high
-            Vector2 center = new Vector2(cell.pos.x + cell.size * 0.5f, cell.pos.y + 0.5f);
-            float vanishDist = Vector2.dst2(
-                    culprit.x, culprit.y, center.x, center.y) / ((float) Math.pow(cell.size, 4.0f) * 0.2f);
-
-            // Negative time = delay, + 0.4*lifetime because elastic interpolation has that delay
-            vanishElapsed = vanishLifetime * 0.4f - vanishDist;
-        }
-
-        @Override
-        public void draw(Batch batch) {
-            vanishElapsed += Gdx.graphics.getDeltaTime();
-
-            // vanishElapsed might be < 0 (delay), so clamp to 0
-            float progress = Math.min(1f,
-                    Math.max(vanishElapsed, 0f) / vanishLifetime);
-
-            // If one were to plot the elasticIn function, they would see that the slope increases
-            // a lot towards the end- a linear interpolation between the last size + the desired
-            // size at 20% seems to look a lot better.
-            vanishSize = MathUtils.lerp(
-                    vanishSize,
-                    Interpolation.elasticIn.apply(cell.size, 0, progress),
-                    0.2f
-            );
-
-            float centerOffset = cell.size * 0.5f - vanishSize * 0.5f;
-            Cell.draw(vanishColor, batch, cell.pos.x + centerOffset, cell.pos.y + centerOffset, vanishSize);
-        }
-
-        @Override
-        public boolean isDone() {
-            return vanishSize < MINIMUM_SIZE;
-        }
+    // The whole line vanishes at once, as its middle cell would (but every cell keeps its color)
+    @Override
+    public IEffect createLine(Cell[] line, Vector2 culprit, ParticleSystem particles) {
+        vanish(particles, particles.spawnLine(line), line[line.length / 2], culprit);
+        return null;
     }
 
+    private void vanish(ParticleSystem particles, int i, Cell deadCell, Vector2 culprit) {
+        // The vanish distance is this measure (distance² + size³ * 20% size)
+        // because it seems good enough. The more the distance, the more the
+        // delay, but we decrease the delay depending on the cell size too or
+        // it would be way too high
+        final float centerX = deadCell.pos.x + deadCell.size * 0.5f;
+        final float centerY = deadCell.pos.y + 0.5f;
+        final float vanishDist = Vector2.dst2(culprit.x, culprit.y, centerX, centerY)
+                / ((float) Math.pow(deadCell.size, 4.0f) * 0.2f);
+
+        // Negative age = delay, + 0.4*lifetime because elastic interpolation has that delay.
+        // It lives until it's too small to be seen rather than for the lifetime.
+        particles.setTiming(i, LIFETIME * 0.4f - vanishDist, LIFETIME, Float.POSITIVE_INFINITY);
+
+        // If one were to plot the elasticIn function, they would see that the slope increases
+        // a lot towards the end- a linear interpolation between the last size + the desired
+        // size at 20% seems to look a lot better.
+        particles.setShrink(i, 0f, Interpolation.elasticIn, 0.2f, 0.5f);
+    }
 }
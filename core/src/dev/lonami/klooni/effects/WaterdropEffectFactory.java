@@ -17,14 +17,12 @@
 */
 package dev.lonami.klooni.effects;
 
-import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Color;
-import com.badlogic.gdx.graphics.Texture;
-import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.math.Vector3;
 
+import dev.lonami.klooni.Klooni;
 import dev.lonami.klooni.SkinLoader;
 import dev.lonami.klooni.game.Cell;
 import dev.lonami.klooni.interfaces.IEffect;
@@ -32,12 +30,16 @@ import dev.lonami.klooni.interfaces.IEffectFactory;
 
 
 public class WaterdropEffectFactory implements IEffectFactory {
-    private Texture dropTexture;
+    private TextureRegion dropTexture;
+
+    private static final float FALL_ACCELERATION = 500.0f;
+    private static final float FALL_VARIATION = 50.0f;
+    private static final float COLOR_SPEED = 7.5f;
 
 
     private void init() {
         if (dropTexture == null)
-            dropTexture = SkinLoader.loadPng("cells/drop.png");
+            dropTexture = SkinLoader.getRegion("cells/drop");
     }
 
     @Override
@@ -55,67 +57,39 @@ public class WaterdropEffectFactory implements IEffectFactory {
         return 200;
     }
 
+    // The cell turns into a drop as it falls, which are two particles falling
+    // together: the cell fading out and the drop (of the same color) fading in.
+    // Unless effects are as detailed as they can be, only the drop falls.
     @Override
-    public IEffect create(Cell deadCell, Vector2 culprit) {
+    public IEffect create(Cell deadCell, Vector2 culprit, ParticleSystem particles) {
         init();
-        IEffect effect = new WaterdropEffect();
-        effect.setInfo(deadCell, culprit);
-        return effect;
-    }
-
-
-    private class WaterdropEffect implements IEffect {
-        private Vector2 pos;
-        private boolean dead;
-
-        private Color cellColor;
-        private Color dropColor;
-        private float cellSize;
-
-        private final float fallAcceleration;
-        private float fallSpeed;
-
-        private static final float FALL_ACCELERATION = 500.0f;
-        private static final float FALL_VARIATION = 50.0f;
-        private static final float COLOR_SPEED = 7.5f;
-
-        WaterdropEffect() {
-            fallAcceleration = FALL_ACCELERATION + MathUtils.random(-FALL_VARIATION, FALL_VARIATION);
+        final Color color = Klooni.theme.getCellColor(deadCell.getColorIndex());
+        final float fallAcceleration = FALL_ACCELERATION + MathUtils.random(-FALL_VARIATION, FALL_VARIATION);
+
+        if (Klooni.effectGovernor.getLevel() == EffectGovernor.HIGHEST) {
+            final int cell = particles.spawn(deadCell.pos.x, deadCell.pos.y, deadCell.size, color);
+            particles.setMotion(cell, 0f, 0f, 0f, -fallAcceleration, 1f);
+            particles.setFade(cell, color.a, -COLOR_SPEED);
+            particles.setTiming(cell, 0f, 1f, color.a / COLOR_SPEED);
         }
 
-        @Override
-        public void setInfo(Cell deadCell, Vector2 culprit) {
-            pos = deadCell.pos.cpy();
-            cellSize = deadCell.size;
-            cellColor = deadCell.getColorCopy();
-            dropColor = new Color(cellColor.r, cellColor.g, cellColor.b, 0.0f);
-        }
+        final int drop = particles.spawn(deadCell.pos.x, deadCell.pos.y, deadCell.size, color);
+        particles.setMotion(drop, 0f, 0f, 0f, -fallAcceleration, 1f);
+        particles.setFade(drop, 0f, COLOR_SPEED);
+        particles.setTexture(drop, dropTexture);
+        return null;
+    }
 
-        @Override
-        public void draw(Batch batch) {
-            final float dt = Gdx.graphics.getDeltaTime();
-            fallSpeed += fallAcceleration * dt;
-            pos.y -= fallSpeed * dt;
-
-            cellColor.set(
-                    cellColor.r, cellColor.g, cellColor.b,
-                    Math.max(cellColor.a - COLOR_SPEED * dt, 0.0f)
-            );
-            dropColor.set(
-                    cellColor.r, cellColor.g, cellColor.b,
-                    Math.min(dropColor.a + COLOR_SPEED * dt, 1.0f)
-            );
-
-            Cell.draw(cellColor, batch, pos.x, pos.y, cellSize);
-            Cell.draw(dropTexture, dropColor, batch, pos.x, pos.y, cellSize);
-
-            final Vector3 translation = batch.getTransformMatrix().getTranslation(new Vector3());
-            dead = translation.y + pos.y + dropTexture.getHeight() < 0;
-        }
+    // The whole line turns into drops falling together, each with the color of its cell
+    @Override
+    public IEffect createLine(Cell[] line, Vector2 culprit, ParticleSystem particles) {
+        init();
+        final float fallAcceleration = FALL_ACCELERATION + MathUtils.random(-FALL_VARIATION, FALL_VARIATION);
 
-        @Override
-        public boolean isDone() {
-            return dead;
-        }
+        final int drop = particles.spawnLine(line);
+        particles.setMotion(drop, 0f, 0f, 0f, -fallAcceleration, 1f);
+        particles.setFade(drop, 0f, COLOR_SPEED);
+        particles.setTexture(drop, dropTexture);
+        return null;
     }
 }
@@ -2,58 +2,108 @@ package dev.lonami.klooni.game;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Color;
-import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.TimeUtils;
 
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
-import java.util.Stack;
 
 import dev.lonami.klooni.Klooni;
 import dev.lonami.klooni.SkinLoader;
+import dev.lonami.klooni.engine.HintSearch;
+import dev.lonami.klooni.engine.Shape;
+import dev.lonami.klooni.engine.Solution;
+import dev.lonami.klooni.engine.UndoLog;
 import dev.lonami.klooni.serializer.BinSerializable;
+import dev.lonami.klooni.serializer.BinSerializer;
 
-// Undoer can undo the last move from the current hand.
+// Undoer can undo (and redo) any move of the game.
 public class Actions implements BinSerializable {
-    public enum Action {None, Undo, Pause}
+    public enum Action {None, Undo, Redo, Pause, Hint}
 
     private Board board;
     private PieceHolder pieceHolder;
     private BaseScorer scorer;
 
-    private Stack<State> states;
+    // Only what every move changed is recorded, along with the pieces put
+    // and the hand taken after the last move of every hand (or null)
+    private final UndoLog undoLog;
+    private final Array<Piece> movedPieces;
+    private final Array<Piece[]> refills;
 
     final Rectangle undoArea;
-    final Texture undoButton;
+    final TextureRegion undoButton;
     private final Color undoColor;
 
+    // Redo uses the same button as undo, but mirrored
+    final Rectangle redoArea;
+    private final TextureRegion redoButton;
+
     final Rectangle pauseArea;
-    private final Texture pauseButton;
+    private final TextureRegion pauseButton;
     private final Color pauseColor;
 
+    final Rectangle hintArea;
+    private final TextureRegion hintButton;
+    private final Color hintColor;
+
+    // Looks for a good move in the background, once the player asks for
+    // a hint or has been thinking for a while without making any move
+    private final HintSearch hints;
+    private final Shape[] hand;
+
+    // The hint was asked for but there was none yet, show it once there is
+    private boolean hintRequested;
+
+    // Whether the game changed since the search was last started, and when
+    private boolean hintStale;
+    private long changedMillis;
+
+    // How long the player has to be idle before the hint is searched anyway
+    private static final long IDLE_MILLIS = 4000;
+
     public Actions(GameLayout layout, Board board, PieceHolder pieceHolder, BaseScorer scorer) {
         this.board = board;
         this.pieceHolder = pieceHolder;
         this.scorer = scorer;
 
-        states = new Stack<State>();
+        undoLog = board.undoLog;
+        movedPieces = new Array<Piece>();
+        refills = new Array<Piece[]>();
 
         undoArea = new Rectangle();
-        undoButton = SkinLoader.loadPng("undo.png");
+        undoButton = SkinLoader.getRegion("undo");
         undoColor = Klooni.theme.highScore.cpy();
 
+        redoArea = new Rectangle();
+        redoButton = new TextureRegion(undoButton);
+        redoButton.flip(true, false);
+
         pauseArea = new Rectangle();
-        pauseButton = SkinLoader.loadPng("pause.png");
+        pauseButton = SkinLoader.getRegion("pause");
         pauseColor = Klooni.theme.currentScore.cpy();
 
+        hintArea = new Rectangle();
+        hintButton = SkinLoader.getRegion("star");
+        hintColor = Klooni.theme.bonus.cpy();
+
+        // Phones have few cores to spare and would drain their battery
+        // searching on all of them, so they only use a single one
+        hints = Klooni.onDesktop
+                ? new HintSearch(board.cellCount, pieceHolder.count)
+                : new HintSearch(board.cellCount, pieceHolder.count, 1);
+        hand = new Shape[pieceHolder.count];
+
         layout.update(this);
     }
 
     // returns true when a undo is possible.
     private boolean canUndo() {
-        return pieceHolder.getAvailablePieces().size < pieceHolder.count;
+        return undoLog.canUndo();
     }
 
     public void draw(SpriteBatch batch) {
@@ -61,38 +111,86 @@ public class Actions implements BinSerializable {
         if (canUndo()) {
             batch.draw(undoButton, undoArea.x, undoArea.y, undoArea.width, undoArea.height);
         }
+        if (undoLog.canRedo()) {
+            batch.draw(redoButton, redoArea.x, redoArea.y, redoArea.width, redoArea.height);
+        }
         batch.setColor(pauseColor);
         batch.draw(pauseButton, pauseArea.x, pauseArea.y, pauseArea.width, pauseArea.height);
+        batch.setColor(hintColor);
+        batch.draw(hintButton, hintArea.x, hintArea.y, hintArea.width, hintArea.height);
+
+        if (hintRequested)
+            showHint();
+        else if (hintStale && TimeUtils.timeSinceMillis(changedMillis) > IDLE_MILLIS)
+            searchHint();
     }
 
-    // Records the game state (score, board-cells, pieceholder-items).
-    public void recordState() {
-        if (!canUndo()) {
-            // clear states when hand is refilled
-            clearStates();
-        }
+    // Must be called every time the board or the pieces change, so the old
+    // hint (if shown) is hidden and the next one is searched for the new state
+    public void stateChanged() {
+        board.clearHint();
+        hintRequested = false;
+        hintStale = true;
+        changedMillis = TimeUtils.millis();
+    }
 
-        Cell[][] cellsCpy = new Cell[board.cellCount][board.cellCount];
-        for (int i = 0; i < board.cellCount; ++i) {
-            for (int j = 0; j < board.cellCount; ++j) {
-                cellsCpy[i][j] = new Cell(j * board.cellSize, i * board.cellSize, board.cellSize);
-                cellsCpy[i][j].set(board.cells[i][j].colorIndex);
-            }
+    // Starts searching for the hint of the current state, if it wasn't already
+    private void searchHint() {
+        if (!hintStale)
+            return;
+
+        for (int i = 0; i < hand.length; ++i)
+            hand[i] = pieceHolder.pieces[i] == null ? null : pieceHolder.pieces[i].shape;
+
+        hints.restart(board.grid, hand);
+        hintStale = false;
+    }
+
+    // Shows the first move of the best solution found so far, if any
+    private void showHint() {
+        searchHint();
+        final Solution solution = hints.getBest();
+        if (solution == null) {
+            hintRequested = true;
+            return;
         }
-        Piece[] piecesCpy = new Piece[pieceHolder.count];
-        System.arraycopy(pieceHolder.pieces, 0, piecesCpy, 0, pieceHolder.count);
 
-        states.push(new State(scorer.currentScore, cellsCpy, piecesCpy));
+        hintRequested = false;
+        if (solution.getMoveCount() != 0) {
+            final Piece piece = pieceHolder.pieces[solution.slots[0]];
+            board.showHint(piece, solution.xs[0], solution.ys[0]);
+        }
     }
 
-    // Removes the state that was recorded last.
-    public void discardLastState() {
-        states.pop();
+    // Records the move that was just made (with the score before it),
+    // which must be done before its complete lines are cleared.
+    public void recordMove(final PieceHolder.DropResult result, int score) {
+        final int position = undoLog.position();
+        movedPieces.truncate(position);
+        refills.truncate(position);
+
+        undoLog.recordPut(result.piece.shape, result.x, result.y, result.slot, score);
+        movedPieces.add(result.piece);
+
+        if (pieceHolder.getAvailablePieces().size == pieceHolder.count) {
+            // The hand was refilled, which must be known to go back to the last one
+            final Piece[] refill = new Piece[pieceHolder.count];
+            System.arraycopy(pieceHolder.pieces, 0, refill, 0, pieceHolder.count);
+            refills.add(refill);
+
+            final Shape[] shapes = new Shape[pieceHolder.count];
+            for (int i = 0; i < shapes.length; ++i)
+                shapes[i] = refill[i].shape;
+
+            undoLog.recordRefill(shapes);
+        } else {
+            refills.add(null);
+        }
     }
 
-    // Removes all recorded states.
-    private void clearStates() {
-        states.clear();
+    // Records the score once the last move has been counted.
+    public void recordScore() {
+        undoLog.recordScore(scorer.currentScore);
     }
 
     // Undo the last move if the undo icon was pressed.
@@ -109,92 +207,113 @@ public class Actions implements BinSerializable {
             return Action.Undo;
         }
 
+        // check if the redo icon was pressed and redo is possible
+        if (x >= redoArea.x && x <= redoArea.x + redoArea.width
+                && y >= redoArea.y && y <= redoArea.y + redoArea.height
+                && undoLog.canRedo()) {
+            redoLastMove();
+            return Action.Redo;
+        }
+
         // check if the pause icon was pressed
         if (x >= pauseArea.x && x <= pauseArea.x + pauseArea.width
                 && y >= pauseArea.y && y <= pauseArea.y + pauseArea.height) {
             return Action.Pause;
         }
-        return Action.None;
-    }
 
-    private void undoLastMove() {
-        State state = states.pop();
-        scorer.currentScore = state.score;
-        board.cells = state.cells;
-        System.arraycopy(state.pieces, 0, pieceHolder.pieces, 0, pieceHolder.count);
-    }
-
-    @Override
-    public void write(DataOutputStream out) throws IOException {
-        int statesLen = states.size();
-        out.writeInt(statesLen);
-
-        // iterate from the bottom to the top of the Stack to get the correct order when reading later.
-        for (int i = 0; i < statesLen; i++) {
-            states.get(i).write(out);
+        // check if the hint icon was pressed
+        if (x >= hintArea.x && x <= hintArea.x + hintArea.width
+                && y >= hintArea.y && y <= hintArea.y + hintArea.height) {
+            showHint();
+            return Action.Hint;
         }
+        return Action.None;
     }
 
-    @Override
-    public void read(DataInputStream in) throws IOException {
-        final int savedStates = in.readInt();
-
-        for (int i = 0; i < savedStates; i++) {
-            State state = new State();
-            state.read(in);
-            states.push(state);
+    // Undoes the last move, returning false if there was none
+    public boolean undoLastMove() {
+        if (!canUndo())
+            return false;
+
+        final int last = undoLog.position() - 1;
+        if (refills.get(last) != null) {
+            // The hand before the last move of a hand only had that piece
+            final Piece[] hand = new Piece[pieceHolder.count];
+            hand[undoLog.getSlot(last)] = movedPieces.get(last);
+            pieceHolder.setPieces(hand);
+        } else {
+            pieceHolder.putBack(undoLog.getSlot(last), movedPieces.get(last));
         }
+
+        scorer.currentScore = undoLog.getScore(last);
+        board.undo();
+        stateChanged();
+        return true;
     }
 
-    public class State implements BinSerializable {
-        int score;
-        Cell[][] cells;
-        Piece[] pieces;
+    // Redoes the last undone move, returning false if there was none
+    public boolean redoLastMove() {
+        if (!undoLog.canRedo())
+            return false;
 
-        State() {
-        }
+        final int next = undoLog.position();
+        pieceHolder.pieces[undoLog.getSlot(next)] = null;
+        if (refills.get(next) != null)
+            pieceHolder.setPieces(refills.get(next));
 
-        State(int score, Cell[][] cells, Piece[] pieces) {
-            this.score = score;
-            this.cells = cells;
-            this.pieces = pieces;
-        }
+        scorer.currentScore = undoLog.getScoreAfter(next);
+        board.redo();
+        stateChanged();
+        return true;
+    }
 
-        @Override
-        public void write(DataOutputStream out) throws IOException {
-            out.writeInt(score);
+    // Stops searching for hints, since the game won't be played anymore
+    public void dispose() {
+        hints.shutdown();
+    }
 
-            for (int i = 0; i < board.cellCount; ++i) {
-                for (int j = 0; j < board.cellCount; ++j) {
-                    cells[i][j].write(out);
-                }
-            }
+    @Override
+    public void write(DataOutputStream out) throws IOException {
+        undoLog.write(out);
+    }
 
-            for (int i = 0; i < pieceHolder.count; ++i) {
-                if (pieces[i] == null) {
-                    out.writeBoolean(false);
-                } else {
-                    out.writeBoolean(true);
-                    pieces[i].write(out);
+    @Override
+    public void read(DataInputStream in, int version) throws IOException {
+        undoLog.clear();
+        movedPieces.clear();
+        refills.clear();
+
+        // Older versions only recorded the current hand, or the whole board for every
+        // move, so the game is kept but its moves can't be undone (and are the last thing)
+        if (version < BinSerializer.PACKED_VERSION)
+            return;
+
+        undoLog.read(in, version);
+
+        for (int i = 0; i < undoLog.size(); i++) {
+            final int slot = undoLog.getSlot(i);
+            if (slot < 0 || slot >= pieceHolder.count)
+                throw new IOException("Invalid slot found on the recorded moves.");
+
+            // The pieces would otherwise come back from the corner of the screen
+            final Piece piece = new Piece(undoLog.getShape(i));
+            pieceHolder.place(piece, slot);
+            movedPieces.add(piece);
+
+            final Shape[] shapes = undoLog.getRefill(i);
+            if (shapes == null) {
+                refills.add(null);
+            } else if (shapes.length != pieceHolder.count) {
+                throw new IOException("Invalid hand found on the recorded moves.");
+            } else {
+                final Piece[] refill = new Piece[pieceHolder.count];
+                for (int j = 0; j < refill.length; ++j) {
+                    refill[j] = new Piece(shapes[j]);
+                    pieceHolder.place(refill[j], j);
                 }
-            }
-        }
 
-        @Override
-        public void read(DataInputStream in) throws IOException {
-            score = in.readInt();
-
-            cells = new Cell[board.cellCount][board.cellCount];
-            for (int i = 0; i < board.cellCount; ++i) {
-                for (int j = 0; j < board.cellCount; ++j) {
-                    cells[i][j] = new Cell(j * board.cellSize, i * board.cellSize, board.cellSize);
-                    cells[i][j].read(in);
-                }
+                refills.add(refill);
             }
-
-            pieces = new Piece[pieceHolder.count];
-            for (int i = 0; i < pieceHolder.count; i++)
-                pieces[i] = in.readBoolean() ? Piece.read(in) : null;
         }
     }
 }
@@ -18,8 +18,8 @@
 package dev.lonami.klooni.game;
 
 import com.badlogic.gdx.graphics.Color;
-import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.Interpolation;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Rectangle;
@@ -28,6 +28,7 @@ import com.badlogic.gdx.utils.Align;
 
 import dev.lonami.klooni.Klooni;
 import dev.lonami.klooni.SkinLoader;
+import dev.lonami.klooni.engine.Rules;
 import dev.lonami.klooni.serializer.BinSerializable;
 
 public abstract class BaseScorer implements BinSerializable {
@@ -39,7 +40,7 @@ public abstract class BaseScorer implements BinSerializable {
     final Label currentScoreLabel;
     final Label highScoreLabel;
 
-    final Texture cupTexture;
+    final TextureRegion cupTexture;
     final Rectangle cupArea;
 
     private final Color cupColor;
@@ -53,7 +54,7 @@ public abstract class BaseScorer implements BinSerializable {
 
     // The board size is required when calculating the score
     BaseScorer(final Klooni game, GameLayout layout, int highScore) {
-        cupTexture = SkinLoader.loadPng("cup.png");
+        cupTexture = SkinLoader.getRegion("cup");
         cupColor = Klooni.theme.currentScore.cpy();
         cupArea = new Rectangle();
 
@@ -72,14 +73,9 @@ public abstract class BaseScorer implements BinSerializable {
 
     //region Private methods
 
-    // The original game seems to work as follows:
-    // If < 1 were cleared, score = 0
-    // If = 1  was cleared, score = cells cleared
-    // If > 1 were cleared, score = cells cleared + score(cleared - 1)
+    // See Rules.calculateClearScore, this is shared with the engine
     final int calculateClearScore(int stripsCleared, int boardSize) {
-        if (stripsCleared < 1) return 0;
-        if (stripsCleared == 1) return boardSize;
-        else return boardSize * stripsCleared + calculateClearScore(stripsCleared - 1, boardSize);
+        return Rules.calculateClearScore(stripsCleared, boardSize);
     }
 
     //endregion
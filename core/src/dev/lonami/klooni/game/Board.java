@@ -17,19 +17,33 @@
 */
 package dev.lonami.klooni.game;
 
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
 import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Matrix4;
 import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.TimeUtils;
 
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 
+import dev.lonami.klooni.Klooni;
+import dev.lonami.klooni.Theme;
+import dev.lonami.klooni.effects.EffectGovernor;
+import dev.lonami.klooni.effects.ParticleSystem;
+import dev.lonami.klooni.engine.BitBoard;
+import dev.lonami.klooni.engine.Shape;
+import dev.lonami.klooni.engine.UndoLog;
 import dev.lonami.klooni.interfaces.IEffect;
 import dev.lonami.klooni.interfaces.IEffectFactory;
 import dev.lonami.klooni.serializer.BinSerializable;
+import dev.lonami.klooni.serializer.BinSerializer;
 
 // Represents the on screen board, with all the put cells
 // and functions to determine when it is game over given a PieceHolder
@@ -39,69 +53,117 @@ public class Board implements BinSerializable {
 
     public final int cellCount;
     public float cellSize;
-    public Cell[][] cells;
+    public final Cell[][] cells;
     private final Array<IEffect> effects = new Array<IEffect>(); // Particle effects once they vanish
 
+    // The same cells by column, so a column can be given to an effect like a row
+    private final Cell[][] columns;
+
+    // Most effects alive at once (besides particles, which have their own limit),
+    // and most cells cleared at once with an effect each rather than one per line
+    private static final int MAX_EFFECTS = 64;
+    private static final int MAX_CELL_EFFECTS = 40;
+
+    // Where the built-in effects spawn their particles, in the same coordinates as the cells.
+    // Enough for a few lines exploding at once, although it grows if more are needed
+    private static final int INITIAL_PARTICLES = 256;
+    private final ParticleSystem particles = new ParticleSystem(INITIAL_PARTICLES);
+
+    // Steps the effects at the same rate no matter how often the board is drawn
+    private final SimulationClock clock = new SimulationClock();
+
+    // The real state of the board, cells are only a view over it
+    final BitBoard grid;
+
+    // Scratch masks reused by clears to avoid allocations
+    private final long[] mask;
+    private final long[] effectMask;
+
     public final Vector2 pos = new Vector2();
 
     // Used to animate cleared cells vanishing
     private final Vector2 lastPutPiecePos = new Vector2();
 
+    // Only the lines the last piece was put on can be complete
+    private Shape lastPutShape;
+    int lastPutX, lastPutY;
+
+    // What every move changed on the grid, so it can be undone
+    final UndoLog undoLog;
+
+    // The piece suggested as a hint (if any) and where, drawn faded over the cells
+    private Piece hintPiece;
+    private int hintX, hintY;
+    private final Color hintColor = new Color();
+
+    // The cells are drawn from here if cacheCells() was called, which is only built
+    // again once they change (or the theme does), instead of drawing every cell
+    private SpriteCache cellCache;
+    private int cellCacheId = -1;
+    private boolean cellsChanged;
+    private Theme cachedTheme;
+    private int cachedThemeVersion;
+    private final Matrix4 cacheTransform = new Matrix4();
+
     //endregion
 
     //region Constructor
 
     public Board(final GameLayout layout, int cellCount) {
         this.cellCount = cellCount;
+        grid = new BitBoard(cellCount);
+        grid.trackLegalMoves();
+        mask = grid.newMask();
+        effectMask = grid.newMask();
+        undoLog = new UndoLog(grid);
 
         // Cell size depends on the layout to be updated first
         layout.update(this);
-        createCells();
+        cells = createCells();
+        columns = createColumns();
     }
 
     public Board(final Rectangle area, int cellCount) {
         this.cellCount = cellCount;
+        grid = new BitBoard(cellCount);
+        grid.trackLegalMoves();
+        mask = grid.newMask();
+        effectMask = grid.newMask();
+        undoLog = new UndoLog(grid);
 
         // Cell size depends on the layout to be updated first
         pos.set(area.x, area.y);
         cellSize = Math.min(area.height, area.width) / cellCount;
-        createCells();
+        cells = createCells();
+        columns = createColumns();
     }
 
-    private void createCells() {
-        cells = new Cell[this.cellCount][this.cellCount];
-        for (int i = 0; i < this.cellCount; ++i) {
-            for (int j = 0; j < this.cellCount; ++j) {
-                cells[i][j] = new Cell(j * cellSize, i * cellSize, cellSize);
+    private Cell[][] createCells() {
+        final Cell[][] result = new Cell[cellCount][cellCount];
+        for (int i = 0; i < cellCount; ++i) {
+            for (int j = 0; j < cellCount; ++j) {
+                result[i][j] = new Cell(grid, j, i, cellSize);
             }
         }
+        return result;
     }
 
-    //endregion
-
-    //region Private methods
+    private Cell[][] createColumns() {
+        final Cell[][] result = new Cell[cellCount][cellCount];
+        for (int i = 0; i < cellCount; ++i)
+            for (int j = 0; j < cellCount; ++j)
+                result[j][i] = cells[i][j];
 
-    // True if the given cell coordinates are inside the bounds of the board
-    private boolean inBounds(int x, int y) {
-        return x >= 0 && x < cellCount && y >= 0 && y < cellCount;
+        return result;
     }
 
-    // True if the given piece at the given coordinates is not outside the bounds of the board
-    private boolean inBounds(Piece piece, int x, int y) {
-        return inBounds(x, y) && inBounds(x + piece.cellCols - 1, y + piece.cellRows - 1);
-    }
+    //endregion
+
+    //region Private methods
 
     // This only tests for the piece on the given coordinates, not the whole board
     private boolean canPutPiece(Piece piece, int x, int y) {
-        if (!inBounds(piece, x, y))
-            return false;
-
-        for (int i = 0; i < piece.cellRows; ++i)
-            for (int j = 0; j < piece.cellCols; ++j)
-                if (!cells[y + i][x + j].isEmpty() && piece.filled(i, j))
-                    return false;
-
-        return true;
+        return grid.canPut(piece.shape, x, y);
     }
 
     // Returns true iff the piece was put on the board
@@ -109,42 +171,210 @@ public class Board implements BinSerializable {
         if (!canPutPiece(piece, x, y))
             return false;
 
-        lastPutPiecePos.set(piece.calculateGravityCenter());
-        for (int i = 0; i < piece.cellRows; ++i)
-            for (int j = 0; j < piece.cellCols; ++j)
-                if (piece.filled(i, j))
-                    cells[y + i][x + j].set(piece.colorIndex);
-
+        piece.calculateGravityCenter(lastPutPiecePos);
+        grid.put(piece.shape, x, y, piece.colorIndex);
+        cellsChanged = true;
+        lastPutShape = piece.shape;
+        lastPutX = x;
+        lastPutY = y;
         return true;
     }
 
+    // Adds the effect if there is one, making room for it if there are too many
+    private void addEffect(final IEffect effect) {
+        if (effect == null)
+            return;
+
+        if (effects.size == MAX_EFFECTS)
+            effects.removeIndex(0); // the oldest one
+
+        effects.add(effect);
+    }
+
+    private static boolean isSet(final long[] mask, int index) {
+        return (mask[index >> 6] & (1L << (index & 63))) != 0;
+    }
+
+    private static void unset(final long[] mask, int index) {
+        mask[index >> 6] &= ~(1L << (index & 63));
+    }
+
+    // Creates an effect for every cell set in the mask, before they're cleared.
+    // If too many cells are cleared at once, or effects must be cheap, every row
+    // and column which is whole on the mask (so it was complete) gets a single
+    // effect instead, and only the cells left get their own.
+    private void addEffects(final IEffectFactory effect, final Vector2 culprit) {
+        if (effect == null)
+            return;
+
+        System.arraycopy(mask, 0, effectMask, 0, mask.length);
+
+        int cellsCleared = 0;
+        for (long m : mask)
+            cellsCleared += Long.bitCount(m);
+
+        if (cellsCleared > MAX_CELL_EFFECTS || Klooni.effectGovernor.getLevel() == EffectGovernor.LOWEST) {
+            for (int i = 0; i < cellCount; ++i) {
+                boolean row = true, column = true;
+                for (int j = 0; j < cellCount; ++j) {
+                    row &= isSet(mask, i * cellCount + j);
+                    column &= isSet(mask, j * cellCount + i);
+                }
+
+                // A cell on both a row and a column is part of both their effects
+                if (row) {
+                    addEffect(effect.createLine(cells[i], culprit, particles));
+                    for (int j = 0; j < cellCount; ++j)
+                        unset(effectMask, i * cellCount + j);
+                }
+                if (column) {
+                    addEffect(effect.createLine(columns[i], culprit, particles));
+                    for (int j = 0; j < cellCount; ++j)
+                        unset(effectMask, j * cellCount + i);
+                }
+            }
+        }
+
+        for (int w = 0; w < effectMask.length; ++w) {
+            for (long m = effectMask[w]; m != 0; m &= m - 1) {
+                final int index = (w << 6) + Long.numberOfTrailingZeros(m);
+                addEffect(effect.create(cells[index / cellCount][index % cellCount], culprit, particles));
+            }
+        }
+    }
+
+    private void drawHint(final Batch batch) {
+        // Pulse slowly so it's not mistaken for a piece already put
+        final float alpha = 0.45f + 0.25f * MathUtils.sin(TimeUtils.millis() * 0.005f);
+        hintColor.set(Klooni.theme.getCellColor(hintPiece.colorIndex));
+        hintColor.a = alpha;
+
+        for (int i = 0; i < hintPiece.shape.rows; ++i)
+            for (int j = 0; j < hintPiece.shape.cols; ++j)
+                if (hintPiece.filled(i, j))
+                    Cell.draw(hintColor, batch, (hintX + j) * cellSize, (hintY + i) * cellSize, cellSize);
+    }
+
+    // Adds every cell to the cache as it would be drawn, replacing what it had before
+    private void buildCellCache() {
+        if (cellCacheId == -1)
+            cellCache.beginCache();
+        else
+            cellCache.beginCache(cellCacheId);
+
+        for (int i = 0; i < cellCount; ++i) {
+            for (int j = 0; j < cellCount; ++j) {
+                final Cell cell = cells[i][j];
+                cellCache.setColor(Klooni.theme.getCellColor(cell.getColorIndex()));
+                cellCache.add(Klooni.theme.cellTexture, cell.pos.x, cell.pos.y, cell.size, cell.size);
+            }
+        }
+        cellCacheId = cellCache.endCache();
+
+        cellsChanged = false;
+        cachedTheme = Klooni.theme;
+        cachedThemeVersion = Klooni.theme.getVersion();
+    }
+
     //endregion
 
     //region Public methods
 
+    // Shows where the given piece could be put until clearHint() is called
+    void showHint(final Piece piece, int x, int y) {
+        hintPiece = piece;
+        hintX = x;
+        hintY = y;
+    }
+
+    void clearHint() {
+        hintPiece = null;
+    }
+
+    // The board only changes when a piece is put or lines are cleared, so the cells can be
+    // drawn at once from a cache instead, with drawCellCache() while the batch isn't drawing.
+    // Small boards drawn between other things (such as the effect cards) are better without.
+    public void cacheCells() {
+        if (cellCache == null) {
+            cellCache = new SpriteCache(cellCount * cellCount, false);
+            cellsChanged = true;
+        }
+    }
+
+    // Undoes or redoes the last move on the grid (see UndoLog)
+    void undo() {
+        undoLog.undo();
+        cellsChanged = true;
+    }
+
+    void redo() {
+        undoLog.redo();
+        cellsChanged = true;
+    }
+
+    // Draws the cells from their cache (if they're cached) with the matrices of the batch. The
+    // cache can't be drawn while the batch is, or the batch would have to be flushed first,
+    // so this must be called before it begins (the cells are below anything else on the board).
+    public void drawCellCache(final Batch batch) {
+        if (cellCache == null)
+            return;
+        if (batch.isDrawing())
+            throw new IllegalStateException("The cell cache can't be drawn while the batch is drawing");
+
+        if (cellsChanged || cachedTheme != Klooni.theme || cachedThemeVersion != Klooni.theme.getVersion())
+            buildCellCache();
+
+        cellCache.setProjectionMatrix(batch.getProjectionMatrix());
+        cellCache.setTransformMatrix(cacheTransform.set(batch.getTransformMatrix()).translate(pos.x, pos.y, 0));
+
+        // The cache has no blending of its own, so it must be enabled as the batch does
+        Gdx.gl.glEnable(GL20.GL_BLEND);
+        Gdx.gl.glBlendFunc(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+        cellCache.begin();
+        cellCache.draw(cellCacheId);
+        cellCache.end();
+    }
+
+    // Draws everything on the board but the cached cells (see drawCellCache())
     public void draw(final Batch batch) {
         batch.setTransformMatrix(batch.getTransformMatrix().translate(pos.x, pos.y, 0));
 
-        for (int i = 0; i < cellCount; ++i)
-            for (int j = 0; j < cellCount; ++j)
-                cells[i][j].draw(batch);
+        if (cellCache == null)
+            for (int i = 0; i < cellCount; ++i)
+                for (int j = 0; j < cellCount; ++j)
+                    cells[i][j].draw(batch);
+
+        if (hintPiece != null)
+            drawHint(batch);
 
-        for (int i = effects.size; i-- != 0; ) {
-            effects.get(i).draw(batch);
-            if (effects.get(i).isDone())
-                effects.removeIndex(i);
+        // Where the board is on the screen, as the translation of the transform
+        final float originX = batch.getTransformMatrix().val[Matrix4.M03];
+        final float originY = batch.getTransformMatrix().val[Matrix4.M13];
+
+        for (int step = clock.advance(Gdx.graphics.getDeltaTime()); step-- != 0; ) {
+            particles.update(SimulationClock.STEP, originX, originY);
+            for (int i = effects.size; i-- != 0; ) {
+                effects.get(i).update(SimulationClock.STEP, originX, originY);
+                if (effects.get(i).isDone())
+                    effects.removeIndex(i);
+            }
         }
 
+        final float alpha = clock.getAlpha();
+        particles.draw(batch, alpha);
+        for (int i = effects.size; i-- != 0; )
+            effects.get(i).draw(batch, alpha);
+
         batch.setTransformMatrix(batch.getTransformMatrix().translate(-pos.x, -pos.y, 0));
     }
 
     public boolean canPutPiece(Piece piece) {
-        for (int i = 0; i < cellCount; ++i)
-            for (int j = 0; j < cellCount; ++j)
-                if (canPutPiece(piece, j, i))
-                    return true;
+        return grid.canPutAnywhere(piece.shape);
+    }
 
-        return false;
+    // The hash of which cells are filled, the same a BitBoard with them would have
+    public long getHash() {
+        return grid.getHash();
     }
 
     public boolean putScreenPiece(final Piece piece) {
@@ -183,53 +413,21 @@ public class Board implements BinSerializable {
     //
     // If the piece is put on the top left corner, all the cells will be cleared.
     // If we first cleared the columns, then the rows wouldn't have been cleared.
+    //
+    // Only the rows and columns the last piece was put on are checked.
     public int clearComplete(final IEffectFactory effect) {
-        int clearCount = 0;
-        boolean[] clearedRows = new boolean[cellCount];
-        boolean[] clearedCols = new boolean[cellCount];
+        final int clearCount = lastPutShape == null
+                ? grid.completeLines(mask)
+                : grid.completeLines(lastPutShape, lastPutX, lastPutY, mask);
 
-        // Analyze rows and columns that will be cleared
-        for (int i = 0; i < cellCount; ++i) {
-            clearedRows[i] = true;
-            for (int j = 0; j < cellCount; ++j) {
-                if (cells[i][j].isEmpty()) {
-                    clearedRows[i] = false;
-                    break;
-                }
-            }
-            if (clearedRows[i])
-                clearCount++;
-        }
-        for (int j = 0; j < cellCount; ++j) {
-            clearedCols[j] = true;
-            for (int i = 0; i < cellCount; ++i) {
-                if (cells[i][j].isEmpty()) {
-                    clearedCols[j] = false;
-                    break;
-                }
-            }
-            if (clearedCols[j])
-                clearCount++;
-        }
+        lastPutShape = null;
         if (clearCount > 0) {
-            // Do clear those rows and columns
-            for (int i = 0; i < cellCount; ++i) {
-                if (clearedRows[i]) {
-                    for (int j = 0; j < cellCount; ++j) {
-                        effects.add(effect.create(cells[i][j], lastPutPiecePos));
-                        cells[i][j].set(-1);
-                    }
-                }
-            }
-
-            for (int j = 0; j < cellCount; ++j) {
-                if (clearedCols[j]) {
-                    for (int i = 0; i < cellCount; ++i) {
-                        effects.add(effect.create(cells[i][j], lastPutPiecePos));
-                        cells[i][j].set(-1);
-                    }
-                }
-            }
+            // The mask holds the union of all the complete lines,
+            // so a cell on both a row and a column is cleared once
+            addEffects(effect, lastPutPiecePos);
+            undoLog.recordClear(mask);
+            grid.clear(mask);
+            cellsChanged = true;
         }
 
         return clearCount;
@@ -238,18 +436,19 @@ public class Board implements BinSerializable {
     public void clearAll(final int clearFromX, final int clearFromY, final IEffectFactory effect) {
         final Vector2 culprit = cells[clearFromY][clearFromX].pos;
 
-        for (int i = 0; i < cellCount; ++i) {
-            for (int j = 0; j < cellCount; ++j) {
-                if (!cells[i][j].isEmpty()) {
-                    effects.add(effect.create(cells[i][j], culprit));
-                    cells[i][j].set(-1);
-                }
-            }
-        }
+        grid.filledMask(mask);
+        addEffects(effect, culprit);
+        grid.clear(mask);
+        cellsChanged = true;
     }
 
     public boolean effectsDone() {
-        return effects.size == 0;
+        return effects.size == 0 && particles.isEmpty();
+    }
+
+    public void dispose() {
+        if (cellCache != null)
+            cellCache.dispose();
     }
 
     //endregion
@@ -258,24 +457,23 @@ public class Board implements BinSerializable {
 
     @Override
     public void write(DataOutputStream out) throws IOException {
-        // Cell count, cells in row-major order
-        out.writeInt(cellCount);
-        for (int i = 0; i < cellCount; ++i)
-            for (int j = 0; j < cellCount; ++j)
-                cells[i][j].write(out);
+        // Cell count, cells
+        out.writeByte(cellCount);
+        grid.write(out);
     }
 
     @Override
-    public void read(DataInputStream in) throws IOException {
+    public void read(DataInputStream in, int version) throws IOException {
         // If the saved cell count does not match the current cell count,
         // then an IOException is thrown since the data saved was invalid
-        final int savedCellCount = in.readInt();
+        final int savedCellCount = version < BinSerializer.PACKED_VERSION
+                ? in.readInt() : in.readUnsignedByte();
         if (savedCellCount != cellCount)
             throw new IOException("Invalid cellCount saved.");
 
-        for (int i = 0; i < cellCount; ++i)
-            for (int j = 0; j < cellCount; ++j)
-                cells[i][j].read(in);
+        grid.read(in, version);
+        lastPutShape = null;
+        cellsChanged = true;
     }
 
     //endregion
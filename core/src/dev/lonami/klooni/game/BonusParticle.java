@@ -17,7 +17,6 @@
 */
 package dev.lonami.klooni.game;
 
-import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.math.Interpolation;
 import com.badlogic.gdx.math.Vector2;
@@ -28,7 +27,7 @@ import dev.lonami.klooni.Klooni;
 class BonusParticle {
 
     private final Label label;
-    private float lifetime;
+    private float lifetime, lastLifetime;
 
     private final static float SPEED = 1f;
 
@@ -37,16 +36,20 @@ class BonusParticle {
         label.setBounds(pos.x, pos.y, 0, 0);
     }
 
-    void run(final Batch batch) {
-        // Update
-        lifetime += SPEED * Gdx.graphics.getDeltaTime();
+    // Moves the particle by a step of the SimulationClock
+    void update(final float dt) {
+        lastLifetime = lifetime;
+        lifetime += SPEED * dt;
         if (lifetime > 1f)
             lifetime = 1f;
+    }
 
-        // Render
+    // Draws the particle between its last two steps, as given by alpha
+    void draw(final Batch batch, final float alpha) {
+        final float progress = Interpolation.linear.apply(lastLifetime, lifetime, alpha);
         label.setColor(Klooni.theme.bonus);
-        label.setFontScale(Interpolation.elasticOut.apply(0f, 1f, lifetime));
-        float opacity = Interpolation.linear.apply(1f, 0f, lifetime);
+        label.setFontScale(Interpolation.elasticOut.apply(0f, 1f, progress));
+        float opacity = Interpolation.linear.apply(1f, 0f, progress);
         label.draw(batch, opacity);
     }
 
@@ -17,13 +17,12 @@
 */
 package dev.lonami.klooni.game;
 
+import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.scenes.scene2d.ui.Label;
 import com.badlogic.gdx.utils.Array;
 
-import java.util.Iterator;
-
 import dev.lonami.klooni.Klooni;
 
 public class BonusParticleHandler {
@@ -31,6 +30,9 @@ public class BonusParticleHandler {
     private final Array<BonusParticle> particles;
     private final Label.LabelStyle labelStyle;
 
+    // Steps the particles at the same rate no matter how often they're drawn
+    private final SimulationClock clock = new SimulationClock();
+
     public BonusParticleHandler(final Klooni game) {
         labelStyle = new Label.LabelStyle();
         labelStyle.font = game.skin.getFont("font_bonus");
@@ -42,13 +44,16 @@ public class BonusParticleHandler {
     }
 
     public void run(final Batch batch) {
-        BonusParticle particle;
-        Iterator<BonusParticle> iterator = particles.iterator();
-        while (iterator.hasNext()) {
-            particle = iterator.next();
-            particle.run(batch);
-            if (particle.done())
-                iterator.remove();
+        for (int step = clock.advance(Gdx.graphics.getDeltaTime()); step-- != 0; ) {
+            for (int i = particles.size; i-- != 0; ) {
+                particles.get(i).update(SimulationClock.STEP);
+                if (particles.get(i).done())
+                    particles.removeIndex(i);
+            }
         }
+
+        final float alpha = clock.getAlpha();
+        for (int i = 0; i < particles.size; ++i)
+            particles.get(i).draw(batch, alpha);
     }
 }
@@ -18,25 +18,23 @@
 package dev.lonami.klooni.game;
 
 import com.badlogic.gdx.graphics.Color;
-import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.Vector2;
 
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
-import java.io.IOException;
-
 import dev.lonami.klooni.Klooni;
-import dev.lonami.klooni.serializer.BinSerializable;
+import dev.lonami.klooni.engine.BitBoard;
 
-// Represents a single cell, with a position, size and color.
+// Represents a single cell on screen, with a position and size.
+// Its color is not stored here but read from the BitBoard it belongs to,
+// so cells are only a view used to render (and animate) the board state.
 // Instances will use the cell texture provided by the currently used skin.
-public class Cell implements BinSerializable {
+public class Cell {
 
     //region Members
 
-    // Negative index indicates that the cell is empty
-    public int colorIndex;
+    private final BitBoard grid;
+    private final int x, y;
 
     public final Vector2 pos;
     public final float size;
@@ -45,33 +43,34 @@ public class Cell implements BinSerializable {
 
     //region Constructor
 
-    Cell(float x, float y, float cellSize) {
-        pos = new Vector2(x, y);
+    Cell(final BitBoard grid, int x, int y, float cellSize) {
+        this.grid = grid;
+        this.x = x;
+        this.y = y;
+        pos = new Vector2(x * cellSize, y * cellSize);
         size = cellSize;
-
-        colorIndex = -1;
     }
 
     //endregion
 
     //region Package local methods
 
-    // Sets the cell to be non-empty and of the specified color index
-    public void set(int ci) {
-        colorIndex = ci;
+    // Negative index indicates that the cell is empty
+    public int getColorIndex() {
+        return grid.getColor(x, y);
     }
 
     public void draw(Batch batch) {
         // Always query the color to the theme, because it might have changed
-        draw(Klooni.theme.getCellColor(colorIndex), batch, pos.x, pos.y, size);
+        draw(Klooni.theme.getCellColor(getColorIndex()), batch, pos.x, pos.y, size);
     }
 
     public Color getColorCopy() {
-        return Klooni.theme.getCellColor(colorIndex).cpy();
+        return Klooni.theme.getCellColor(getColorIndex()).cpy();
     }
 
     boolean isEmpty() {
-        return colorIndex < 0;
+        return grid.isEmpty(x, y);
     }
 
     //endregion
@@ -86,26 +85,11 @@ public class Cell implements BinSerializable {
     }
 
     // Custom texture
-    public static void draw(final Texture texture, final Color color, final Batch batch,
+    public static void draw(final TextureRegion texture, final Color color, final Batch batch,
                             final float x, final float y, final float size) {
         batch.setColor(color);
         batch.draw(texture, x, y, size, size);
     }
 
     //endregion
-
-    //region Serialization
-
-    @Override
-    public void write(DataOutputStream out) throws IOException {
-        // Only the color index is saved
-        out.writeInt(colorIndex);
-    }
-
-    @Override
-    public void read(DataInputStream in) throws IOException {
-        colorIndex = in.readInt();
-    }
-
-    //endregion
 }
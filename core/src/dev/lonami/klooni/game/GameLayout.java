@@ -76,7 +76,7 @@ public class GameLayout {
     // add them to a table (and would probably be harder), this approach
     // was used. Note that all these are using Y-up coordinates.
     void update(BaseScorer scorer) {
-        float cupSize = Math.min(scoreHeight, scorer.cupTexture.getHeight());
+        float cupSize = Math.min(scoreHeight, scorer.cupTexture.getRegionHeight());
         final Rectangle area = new Rectangle(
                 marginWidth, pieceHolderHeight + boardHeight + undoHeight,
                 availableWidth, scoreHeight);
@@ -148,15 +148,23 @@ public class GameLayout {
     }
 
     public void update(Actions actions) {
-        float iconSize = Math.min(undoHeight, actions.undoButton.getHeight());
+        float iconSize = Math.min(undoHeight, actions.undoButton.getRegionHeight());
 
-        actions.undoArea.set(marginWidth + availableWidth - iconSize,
+        actions.undoArea.set(marginWidth + availableWidth - 2 * iconSize,
+                pieceHolderHeight + boardHeight,
+                iconSize, iconSize);
+
+        actions.redoArea.set(marginWidth + availableWidth - iconSize,
                 pieceHolderHeight + boardHeight,
                 iconSize, iconSize);
 
         actions.pauseArea.set(marginWidth,
                 pieceHolderHeight + boardHeight,
                 iconSize, iconSize);
+
+        actions.hintArea.set(marginWidth + (availableWidth - iconSize) * 0.5f,
+                pieceHolderHeight + boardHeight,
+                iconSize, iconSize);
     }
 
     //endregion
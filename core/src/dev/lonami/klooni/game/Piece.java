@@ -19,93 +19,47 @@ package dev.lonami.klooni.game;
 
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
-import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
 
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.Random;
 
 import dev.lonami.klooni.Klooni;
+import dev.lonami.klooni.engine.Shape;
+import dev.lonami.klooni.serializer.BinSerializer;
 
-// Represents a piece with an arbitrary shape, which
-// can be either rectangles (squares too) or L shaped
-// with any rotation.
+// Represents a piece on screen, with an arbitrary shape, which
+// can be either rectangles (squares too) or L shaped with any
+// rotation. The shape itself is handled by the engine.
 public class Piece {
 
     //region Members
 
-    final Vector2 pos;
+    // Shapes are shared by all the pieces, only where the piece is drawn is its own
+    public final Shape shape;
     public final int colorIndex;
-    private final int rotation;
 
-    public final int cellCols, cellRows;
-    private final boolean[][] shape;
+    final Vector2 pos;
 
     // Default arbitrary value
     float cellSize = 10f;
 
-    //endregion
-
-    //region Constructors
-
-    // Rectangle-shaped constructor
-    //
-    // If swapSize is true, the rows and columns will be swapped.
-    // colorIndex represents a random index that will be used
-    // to determine the color of this piece when drawn on the screen.
-    private Piece(int cols, int rows, int rotateSizeBy, int colorIndex) {
-        this.colorIndex = colorIndex;
+    // Used to fade the pieces that can't be put, to avoid allocating a color every frame
+    private static final Color fadedColor = new Color();
 
-        pos = new Vector2();
-        rotation = rotateSizeBy % 2;
-        cellCols = rotation == 1 ? rows : cols;
-        cellRows = rotation == 1 ? cols : rows;
-
-        shape = new boolean[cellRows][cellCols];
-        for (int i = 0; i < cellRows; ++i) {
-            for (int j = 0; j < cellCols; ++j) {
-                shape[i][j] = true;
-            }
-        }
-    }
+    //endregion
 
-    // L-shaped constructor
-    private Piece(int lSize, int rotateCount, int colorIndex) {
-        this.colorIndex = colorIndex;
+    //region Constructor
 
+    // The color index of the shape is used to determine
+    // the color of this piece when drawn on the screen.
+    Piece(final Shape shape) {
+        this.shape = shape;
+        colorIndex = shape.colorIndex;
         pos = new Vector2();
-        cellCols = cellRows = lSize;
-        shape = new boolean[lSize][lSize];
-
-        rotation = rotateCount % 4;
-        switch (rotation) {
-            case 0: // ┌
-                for (int j = 0; j < lSize; ++j)
-                    shape[0][j] = true;
-                for (int i = 0; i < lSize; ++i)
-                    shape[i][0] = true;
-                break;
-            case 1: // ┐
-                for (int j = 0; j < lSize; ++j)
-                    shape[0][j] = true;
-                for (int i = 0; i < lSize; ++i)
-                    shape[i][lSize - 1] = true;
-                break;
-            case 2: // ┘
-                for (int j = 0; j < lSize; ++j)
-                    shape[lSize - 1][j] = true;
-                for (int i = 0; i < lSize; ++i)
-                    shape[i][lSize - 1] = true;
-                break;
-            case 3: // └
-                for (int j = 0; j < lSize; ++j)
-                    shape[lSize - 1][j] = true;
-                for (int i = 0; i < lSize; ++i)
-                    shape[i][0] = true;
-                break;
-        }
     }
 
     //endregion
@@ -113,90 +67,46 @@ public class Piece {
     //region Static methods
 
     // Generates a random piece with always the same color for the generated shape
-    public static Piece random() {
-        // 9 pieces [0…8]; 4 possible rotations [0…3]
-        return fromIndex(MathUtils.random(8), MathUtils.random(4));
-    }
-
-    private static Piece fromIndex(int colorIndex, int rotateCount) {
-        switch (colorIndex) {
-            // Squares
-            case 0:
-                return new Piece(1, 1, 0, colorIndex);
-            case 1:
-                return new Piece(2, 2, 0, colorIndex);
-            case 2:
-                return new Piece(3, 3, 0, colorIndex);
-
-            // Lines
-            case 3:
-                return new Piece(1, 2, rotateCount, colorIndex);
-            case 4:
-                return new Piece(1, 3, rotateCount, colorIndex);
-            case 5:
-                return new Piece(1, 4, rotateCount, colorIndex);
-            case 6:
-                return new Piece(1, 5, rotateCount, colorIndex);
-
-            // L's
-            case 7:
-                return new Piece(2, rotateCount, colorIndex);
-            case 8:
-                return new Piece(3, rotateCount, colorIndex);
-        }
-        throw new RuntimeException("Random function is broken.");
+    public static Piece random(final Random random) {
+        return new Piece(Shape.random(random));
     }
 
     //endregion
 
     //region Package local methods
 
-    void draw(SpriteBatch batch) {
-        final Color c = Klooni.theme.getCellColor(colorIndex);
-        for (int i = 0; i < cellRows; ++i)
-            for (int j = 0; j < cellCols; ++j)
-                if (shape[i][j])
+    // Pieces that are not placeable are drawn closer to the color of empty cells
+    void draw(SpriteBatch batch, boolean placeable) {
+        Color c = Klooni.theme.getCellColor(colorIndex);
+        if (!placeable)
+            c = fadedColor.set(c).lerp(Klooni.theme.getCellColor(-1), 0.6f);
+
+        for (int i = 0; i < shape.rows; ++i)
+            for (int j = 0; j < shape.cols; ++j)
+                if (shape.filled(i, j))
                     Cell.draw(c, batch, pos.x + j * cellSize, pos.y + i * cellSize, cellSize);
     }
 
     // Calculates the rectangle of the piece with screen coordinates
     Rectangle getRectangle() {
-        return new Rectangle(pos.x, pos.y, cellCols * cellSize, cellRows * cellSize);
+        return new Rectangle(pos.x, pos.y, shape.cols * cellSize, shape.rows * cellSize);
     }
 
     // Determines whether the shape is filled on the given row and column
     boolean filled(int i, int j) {
-        return shape[i][j];
+        return shape.filled(i, j);
     }
 
     // Calculates the area occupied by the shape
     int calculateArea() {
-        int area = 0;
-        for (int i = 0; i < cellRows; ++i) {
-            for (int j = 0; j < cellCols; ++j) {
-                if (shape[i][j]) {
-                    area++;
-                }
-            }
-        }
-        return area;
+        return shape.area;
     }
 
-    // Calculates the gravity center of the piece shape
-    Vector2 calculateGravityCenter() {
-        int filledCount = 0;
-        Vector2 result = new Vector2();
-        for (int i = 0; i < cellRows; ++i) {
-            for (int j = 0; j < cellCols; ++j) {
-                if (shape[i][j]) {
-                    filledCount++;
-                    result.add(
-                            pos.x + j * cellSize - cellSize * 0.5f,
-                            pos.y + i * cellSize - cellSize * 0.5f);
-                }
-            }
-        }
-        return result.scl(1f / filledCount);
+    // Calculates the gravity center of the piece shape on screen, stored in the given vector
+    Vector2 calculateGravityCenter(final Vector2 result) {
+        return result.set(
+                pos.x + (shape.gravityX - 0.5f) * cellSize,
+                pos.y + (shape.gravityY - 0.5f) * cellSize);
     }
 
     //endregion
@@ -204,13 +114,23 @@ public class Piece {
     //region Serialization
 
     void write(DataOutputStream out) throws IOException {
-        // colorIndex, rotation
-        out.writeInt(colorIndex);
-        out.writeInt(rotation);
+        // colorIndex and rotation, packed in a byte
+        out.writeByte(shape.pack());
+    }
+
+    static Piece read(DataInputStream in, int version) throws IOException {
+        return new Piece(readShape(in, version));
     }
 
-    static Piece read(DataInputStream in) throws IOException {
-        return fromIndex(in.readInt(), in.readInt());
+    static Shape readShape(DataInputStream in, int version) throws IOException {
+        try {
+            if (version < BinSerializer.PACKED_VERSION)
+                return Shape.fromIndex(in.readInt(), in.readInt());
+            else
+                return Shape.unpack(in.readUnsignedByte());
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid piece saved.");
+        }
     }
 
     //endregion
@@ -29,9 +29,12 @@ import com.badlogic.gdx.utils.Array;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.Random;
 
 import dev.lonami.klooni.Klooni;
+import dev.lonami.klooni.engine.Shape;
 import dev.lonami.klooni.serializer.BinSerializable;
+import dev.lonami.klooni.serializer.BinSerializer;
 
 // A holder of pieces that can be drawn on screen.
 // Pieces can be picked up from it and dropped on a board.
@@ -62,6 +65,9 @@ public class PieceHolder implements BinSerializable {
     // Every piece holder belongs to a specific board
     private final Board board;
 
+    // The only source of the pieces taken, so the same seed takes the same pieces
+    private final Random random;
+
     //endregion
 
     //region Static members
@@ -72,9 +78,10 @@ public class PieceHolder implements BinSerializable {
 
     //region Constructor
 
-    public PieceHolder(final GameLayout layout, final Board board,
+    public PieceHolder(final GameLayout layout, final Board board, final Random random,
                        final int pieceCount, final float pickedCellSize) {
         this.board = board;
+        this.random = random;
         enabled = true;
         count = pieceCount;
         pieces = new Piece[count];
@@ -111,7 +118,7 @@ public class PieceHolder implements BinSerializable {
     // Takes a new set of pieces. Should be called when there are no more piece left
     private void takeMore() {
         for (int i = 0; i < count; ++i)
-            pieces[i] = Piece.random();
+            pieces[i] = Piece.random(random);
         updatePiecesStartLocation();
 
         if (Klooni.soundsEnabled()) {
@@ -121,27 +128,13 @@ public class PieceHolder implements BinSerializable {
     }
 
     private void updatePiecesStartLocation() {
-        float perPieceWidth = area.width / count;
         Piece piece;
         for (int i = 0; i < count; ++i) {
             piece = pieces[i];
             if (piece == null)
                 continue;
 
-            // Set the absolute position on screen and the cells' cellSize
-            // Also clamp the cell size to be the picked size as maximum, or
-            // it would be too big in some cases.
-            piece.pos.set(area.x + i * perPieceWidth, area.y);
-            piece.cellSize = Math.min(Math.min(
-                    perPieceWidth / piece.cellCols,
-                    area.height / piece.cellRows), pickedCellSize);
-
-            // Center the piece on the X and Y axes. For this we see how
-            // much up we can go, this is, (area.height - piece.height) / 2
-            Rectangle rectangle = piece.getRectangle();
-            piece.pos.y += (area.height - rectangle.height) * 0.5f;
-            piece.pos.x += (perPieceWidth - rectangle.width) * 0.5f;
-
+            layOut(piece, i);
             originalPositions[i] = new Rectangle(
                     piece.pos.x, piece.pos.y,
                     piece.cellSize, piece.cellSize);
@@ -151,6 +144,25 @@ public class PieceHolder implements BinSerializable {
         }
     }
 
+    // Moves the piece to where it rests when it is on the given slot
+    private void layOut(final Piece piece, int slot) {
+        final float perPieceWidth = area.width / count;
+
+        // Set the absolute position on screen and the cells' cellSize
+        // Also clamp the cell size to be the picked size as maximum, or
+        // it would be too big in some cases.
+        piece.pos.set(area.x + slot * perPieceWidth, area.y);
+        piece.cellSize = Math.min(Math.min(
+                perPieceWidth / piece.shape.cols,
+                area.height / piece.shape.rows), pickedCellSize);
+
+        // Center the piece on the X and Y axes. For this we see how
+        // much up we can go, this is, (area.height - piece.height) / 2
+        Rectangle rectangle = piece.getRectangle();
+        piece.pos.y += (area.height - rectangle.height) * 0.5f;
+        piece.pos.x += (perPieceWidth - rectangle.width) * 0.5f;
+    }
+
     //endregion
 
     //region Public methods
@@ -178,6 +190,32 @@ public class PieceHolder implements BinSerializable {
         return false;
     }
 
+    // Moves a piece that is not on the holder to the given slot, shrunk so
+    // it grows from there once it is put back (like a new hand does)
+    void place(final Piece piece, int slot) {
+        layOut(piece, slot);
+        piece.cellSize = 0f;
+    }
+
+    // Puts the piece back on the given slot, from wherever it is now
+    void putBack(int slot, final Piece piece) {
+        final float x = piece.pos.x, y = piece.pos.y, cellSize = piece.cellSize;
+        layOut(piece, slot);
+        originalPositions[slot] = new Rectangle(
+                piece.pos.x, piece.pos.y,
+                piece.cellSize, piece.cellSize);
+
+        piece.pos.set(x, y);
+        piece.cellSize = cellSize;
+        pieces[slot] = piece;
+    }
+
+    // Replaces the pieces on the holder, as they were at some other point of the game
+    void setPieces(final Piece[] hand) {
+        System.arraycopy(hand, 0, pieces, 0, count);
+        updatePiecesStartLocation();
+    }
+
     public Array<Piece> getAvailablePieces() {
         Array<Piece> result = new Array<Piece>(count);
         for (int i = 0; i < count; ++i)
@@ -193,7 +231,7 @@ public class PieceHolder implements BinSerializable {
     }
 
     private Vector2 calculateHeldPieceCenter() {
-        return heldPiece > -1 ? pieces[heldPiece].calculateGravityCenter() : null;
+        return heldPiece > -1 ? pieces[heldPiece].calculateGravityCenter(new Vector2()) : null;
     }
 
     // Tries to drop the piece on the given board. As a result, it
@@ -212,7 +250,8 @@ public class PieceHolder implements BinSerializable {
                     pieceDropSound.play(1, pitch, 0);
                 }
 
-                result = new DropResult(calculateHeldPieceArea(), calculateHeldPieceCenter());
+                result = new DropResult(calculateHeldPieceArea(), calculateHeldPieceCenter(),
+                        pieces[heldPiece], heldPiece, board.lastPutX, board.lastPutY);
                 pieces[heldPiece] = null;
             } else {
                 if (Klooni.soundsEnabled())
@@ -230,6 +269,42 @@ public class PieceHolder implements BinSerializable {
         return result;
     }
 
+    // Puts the piece on the given slot at (x, y) of the board, as if it had been dropped
+    // there, taking the given hand after it if it was the last one (or new pieces, if no
+    // hand is given). Returns null if the piece could not be put there. Used to replay
+    // moves, so nothing is played or shown but for the sound of taking new pieces.
+    public DropResult putPiece(int slot, int x, int y, final Shape[] hand) {
+        if (slot < 0 || slot >= count || pieces[slot] == null)
+            return null;
+
+        final boolean lastOfHand = getAvailablePieces().size == 1;
+        if (lastOfHand && hand != null && hand.length != count)
+            return null;
+
+        final Piece piece = pieces[slot];
+        if (!board.putPiece(piece, x, y))
+            return null;
+
+        final DropResult result = new DropResult(piece.calculateArea(),
+                piece.calculateGravityCenter(new Vector2()), piece, slot, x, y);
+
+        pieces[slot] = null;
+        if (lastOfHand && hand == null) {
+            takeMore();
+        } else if (lastOfHand) {
+            // The pieces are still taken so the random stream is where it was when the
+            // move was made, but the given hand is used in case the stream was different
+            final Piece[] taken = new Piece[count];
+            for (int i = 0; i < count; ++i) {
+                Shape.random(random);
+                taken[i] = new Piece(hand[i]);
+            }
+
+            setPieces(taken);
+        }
+        return result;
+    }
+
     // Updates the state of the piece holder (and the held piece)
     public void update() {
         Piece piece;
@@ -276,7 +351,8 @@ public class PieceHolder implements BinSerializable {
     public void draw(SpriteBatch batch) {
         for (int i = 0; i < count; ++i) {
             if (pieces[i] != null) {
-                pieces[i].draw(batch);
+                // Pieces that can't be put anywhere are drawn faded
+                pieces[i].draw(batch, board.canPutPiece(pieces[i]));
             }
         }
     }
@@ -288,7 +364,7 @@ public class PieceHolder implements BinSerializable {
     @Override
     public void write(DataOutputStream out) throws IOException {
         // Piece count, false if piece == null, true + piece if piece != null
-        out.writeInt(count);
+        out.writeByte(count);
         for (int i = 0; i < count; ++i) {
             if (pieces[i] == null) {
                 out.writeBoolean(false);
@@ -300,15 +376,16 @@ public class PieceHolder implements BinSerializable {
     }
 
     @Override
-    public void read(DataInputStream in) throws IOException {
+    public void read(DataInputStream in, int version) throws IOException {
         // If the saved piece count does not match the current piece count,
         // then an IOException is thrown since the data saved was invalid
-        final int savedPieceCount = in.readInt();
+        final int savedPieceCount = version < BinSerializer.PACKED_VERSION
+                ? in.readInt() : in.readUnsignedByte();
         if (savedPieceCount != count)
             throw new IOException("Invalid piece count saved.");
 
         for (int i = 0; i < count; i++)
-            pieces[i] = in.readBoolean() ? Piece.read(in) : null;
+            pieces[i] = in.readBoolean() ? Piece.read(in, version) : null;
         updatePiecesStartLocation();
     }
 
@@ -324,17 +401,29 @@ public class PieceHolder implements BinSerializable {
         public final int area;
         public final Vector2 pieceCenter;
 
+        // The piece put on the board, the slot it was taken from and where it was put
+        public final Piece piece;
+        public final int slot;
+        public final int x, y;
+
         DropResult(final boolean dropped) {
             this.dropped = dropped;
             onBoard = false;
             area = 0;
             pieceCenter = null;
+            piece = null;
+            slot = x = y = -1;
         }
 
-        DropResult(final int area, final Vector2 pieceCenter) {
+        DropResult(final int area, final Vector2 pieceCenter,
+                   final Piece piece, final int slot, final int x, final int y) {
             dropped = onBoard = true;
             this.area = area;
             this.pieceCenter = pieceCenter;
+            this.piece = piece;
+            this.slot = slot;
+            this.x = x;
+            this.y = y;
         }
     }
 
@@ -75,7 +75,7 @@ public class Scorer extends BaseScorer implements BinSerializable {
     }
 
     @Override
-    public void read(DataInputStream in) throws IOException {
+    public void read(DataInputStream in, int version) throws IOException {
         currentScore = in.readInt();
         highScore = in.readInt();
     }
@@ -0,0 +1,58 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.game;
+
+// Splits the time between frames into steps of the same length, so whatever
+// is simulated with it (such as the effects of the board) moves the same no
+// matter the frame rate, and a long hitch is a few more steps rather than a
+// single big one. Time which isn't enough for another step is kept for the
+// next frame, and how far it's into the next step is used to interpolate
+// what's drawn between the last two steps, so it still looks smooth on
+// displays refreshing faster than the steps.
+public class SimulationClock {
+
+    //region Members
+
+    // Steps are this many seconds long
+    public static final float STEP = 1f / 60f;
+
+    // Most steps simulated on a single frame, so a slow device doesn't take
+    // longer to simulate every frame as it falls behind. It slows down instead
+    private static final int MAX_STEPS = 5;
+
+    private float accumulator;
+
+    //endregion
+
+    //region Public methods
+
+    // Adds the seconds since the last frame, returning how many steps to simulate
+    public int advance(float delta) {
+        accumulator += Math.min(delta, MAX_STEPS * STEP);
+        final int steps = (int) (accumulator / STEP);
+        accumulator -= steps * STEP;
+        return steps;
+    }
+
+    // How far into the next step the time is, from 0 to 1, to interpolate the last two
+    public float getAlpha() {
+        return accumulator / STEP;
+    }
+
+    //endregion
+}
@@ -170,7 +170,7 @@ public class TimeScorer extends BaseScorer implements BinSerializable {
     }
 
     @Override
-    public void read(DataInputStream in) throws IOException {
+    public void read(DataInputStream in, int version) throws IOException {
         // We need to use the offset, since the start time
         // is different and we couldn't save absolute values
         long deadOffset = in.readLong();
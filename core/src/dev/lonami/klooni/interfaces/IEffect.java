@@ -8,7 +8,15 @@ import dev.lonami.klooni.game.Cell;
 public interface IEffect {
     void setInfo(Cell deadCell, Vector2 culprit);
 
-    void draw(Batch batch);
+    // Moves the effect by a step of the simulation, which is always SimulationClock.STEP
+    // seconds long. The origin is where the board is drawn on the screen (the effect is drawn
+    // relative to it), so the effect can tell when it has left the screen without reading
+    // the transform of the batch. Neither this nor draw() should allocate anything, since
+    // they're called every frame.
+    void update(float delta, float originX, float originY);
+
+    // Draws the effect between its last two steps, as given by alpha (from 0 to 1)
+    void draw(Batch batch, float alpha);
 
     boolean isDone();
 }
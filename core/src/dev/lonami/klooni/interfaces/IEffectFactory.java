@@ -19,6 +19,7 @@ package dev.lonami.klooni.interfaces;
 
 import com.badlogic.gdx.math.Vector2;
 
+import dev.lonami.klooni.effects.ParticleSystem;
 import dev.lonami.klooni.game.Cell;
 
 /**
@@ -35,5 +36,13 @@ public interface IEffectFactory {
 
     int getPrice();
 
-    IEffect create(final Cell deadCell, final Vector2 culprit);
+    // Creates the effect for a cell about to be cleared, drawn by the board until it's done.
+    // Effects made only of particles spawn them on the board's particle system (shared by
+    // every cell and effect) instead, and return null since there's nothing else to draw.
+    IEffect create(final Cell deadCell, final Vector2 culprit, final ParticleSystem particles);
+
+    // Creates a single effect for a whole row or column about to be cleared, whose cells are
+    // given in order. The board uses these instead of one effect per cell when too many cells
+    // are cleared at once, or when the effects must be as cheap as they can (EffectGovernor).
+    IEffect createLine(final Cell[] line, final Vector2 culprit, final ParticleSystem particles);
 }
@@ -147,6 +147,17 @@ class CustomizeScreen implements Screen {
         });
         optionsGroup.addActor(snapButton);
 
+        // Record replays on/off (the button is the same, only the text changes)
+        final SoftButton recordButton = new SoftButton(0, "replay_texture");
+        recordButton.addListener(new ChangeListener() {
+            @Override
+            public void changed(ChangeEvent event, Actor actor) {
+                final boolean shouldRecord = Klooni.toggleRecordReplays();
+                buyBand.setTempText("record replays " + (shouldRecord ? "on" : "off"));
+            }
+        });
+        optionsGroup.addActor(recordButton);
+
         // Issues
         final SoftButton issuesButton = new SoftButton(3, "issues_texture");
         issuesButton.addListener(new ChangeListener() {
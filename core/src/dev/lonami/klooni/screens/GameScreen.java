@@ -25,9 +25,13 @@ import com.badlogic.gdx.audio.Sound;
 import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.math.MathUtils;
 
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 
 import dev.lonami.klooni.Klooni;
@@ -40,11 +44,20 @@ import dev.lonami.klooni.game.PieceHolder;
 import dev.lonami.klooni.game.Scorer;
 import dev.lonami.klooni.game.TimeScorer;
 import dev.lonami.klooni.game.Actions;
+import dev.lonami.klooni.engine.GameState;
+import dev.lonami.klooni.engine.MoveJournal;
+import dev.lonami.klooni.engine.ReplayReader;
+import dev.lonami.klooni.engine.ReplayWriter;
+import dev.lonami.klooni.engine.Shape;
+import dev.lonami.klooni.engine.SplitMixRandom;
+import dev.lonami.klooni.interfaces.IEffectFactory;
 import dev.lonami.klooni.serializer.BinSerializable;
 import dev.lonami.klooni.serializer.BinSerializer;
+import dev.lonami.klooni.serializer.SaveWriter;
 
-// Main game screen. Here the board, piece holder and score are shown
-class GameScreen implements Screen, InputProcessor, BinSerializable {
+// Main game screen. Here the board, piece holder and score are shown.
+// It can also play back a replay instead, with the player only choosing how fast.
+public class GameScreen implements Screen, InputProcessor, BinSerializable {
 
     //region Members
 
@@ -56,6 +69,9 @@ class GameScreen implements Screen, InputProcessor, BinSerializable {
     private final Board board;
     private final PieceHolder holder;
 
+    // Takes all the pieces of the game, and is saved with it to keep taking the same
+    private final SplitMixRandom random;
+
     private final SpriteBatch batch;
     private final Sound gameOverSound;
 
@@ -73,6 +89,20 @@ class GameScreen implements Screen, InputProcessor, BinSerializable {
     // with the current score to get the "increase" of money score.
     private int savedMoneyScore;
 
+    // The moves made since the last save are appended here as they're made,
+    // and the save has a sequence number to know which journal follows it
+    private final MoveJournal journal;
+    private long saveSequence;
+
+    // Every move of the game is recorded here if the player wants replays
+    private ReplayWriter replay;
+
+    // The replay being played back instead, how fast it goes and how long since the last move
+    private final ReplayReader playback;
+    private int playbackSpeed;
+    private float playbackTime;
+    private boolean playbackDone;
+
     //endregion
 
     //region Static members
@@ -85,6 +115,28 @@ class GameScreen implements Screen, InputProcessor, BinSerializable {
 
     private final static String SAVE_DAT_FILENAME = ".klooni.sav";
 
+    // Saves are written in the background so the game doesn't stall while the disk
+    // is busy, which is why it must be flushed before checking what's on disk
+    private final static SaveWriter saveWriter = new SaveWriter();
+
+    private final static String JOURNAL_FILENAME = ".klooni.journal";
+
+    // Once the journal has this many moves, the game is saved whole again
+    private final static int JOURNAL_MAX_MOVES = 32;
+
+    // The replay of a saved game is kept here until the game is over,
+    // and finished replays are all kept on the folder
+    private final static String REPLAY_FILENAME = ".klooni.replay";
+    private final static String REPLAYS_FOLDER = "replays";
+
+    // Whoever is recording on the replay file of the score mode, which may be a screen
+    // that wasn't disposed yet, so it can be closed before the file is moved
+    private static ReplayWriter scoreReplay;
+
+    // Seconds between every move played back, and how much faster it can go
+    private final static float PLAYBACK_MOVE_SECONDS = 0.6f;
+    private final static int[] PLAYBACK_SPEEDS = {1, 2, 4, 8, 16};
+
     //endregion
 
     //region Constructor
@@ -95,9 +147,15 @@ class GameScreen implements Screen, InputProcessor, BinSerializable {
     }
 
     GameScreen(final Klooni game, final int gameMode, final boolean loadSave) {
+        this(game, gameMode, loadSave, null);
+    }
+
+    private GameScreen(final Klooni game, final int gameMode, final boolean loadSave,
+                       final ReplayReader playback) {
         batch = new SpriteBatch();
         this.game = game;
         this.gameMode = gameMode;
+        this.playback = playback;
 
         final GameLayout layout = new GameLayout();
         switch (gameMode) {
@@ -105,31 +163,64 @@ class GameScreen implements Screen, InputProcessor, BinSerializable {
                 scorer = new Scorer(game, layout);
                 break;
             case GAME_MODE_TIME:
-                scorer = new TimeScorer(game, layout);
+                // How long moves took is not recorded, so replays are played back by score
+                scorer = playback == null ? new TimeScorer(game, layout) : new Scorer(game, layout);
                 break;
             default:
                 throw new RuntimeException("Unknown game mode given: " + gameMode);
         }
 
         board = new Board(layout, BOARD_SIZE);
-        holder = new PieceHolder(layout, board, HOLDER_PIECE_COUNT, board.cellSize);
+        board.cacheCells();
+        final long seed = playback == null ? MathUtils.random.nextLong() : playback.getSeed();
+        random = new SplitMixRandom(seed);
+        holder = new PieceHolder(layout, board, random, HOLDER_PIECE_COUNT, board.cellSize);
         actions = new Actions(layout, board, holder, scorer);
         pauseMenu = new PauseMenuStage(layout, game, scorer, gameMode);
         bonusParticleHandler = new BonusParticleHandler(game);
 
         gameOverSound = Gdx.audio.newSound(Gdx.files.internal("sound/game_over.mp3"));
+        journal = new MoveJournal(Gdx.files.local(JOURNAL_FILENAME).file());
 
-        if (gameMode == GAME_MODE_SCORE) {
-            if (loadSave) {
-                // The user might have a previous game. If this is the case, load it
-                if (!tryLoad()) {
-                    System.err.println("failed to load previous games");
+        if (playback != null) {
+            // The player only watches
+            holder.enabled = false;
+        } else {
+            boolean loaded = false;
+            if (gameMode == GAME_MODE_SCORE) {
+                if (loadSave) {
+                    // The user might have a previous game. If this is the case, load it
+                    loaded = tryLoad();
+                    if (!loaded) {
+                        System.err.println("failed to load previous games");
+                    }
+                } else {
+                    // Ensure that there is no old save, we don't want to load it, thus delete it
+                    deleteSave();
                 }
-            } else {
-                // Ensure that there is no old save, we don't want to load it, thus delete it
-                deleteSave();
             }
+
+            if (Klooni.shouldRecordReplays()) {
+                if (loaded)
+                    resumeReplay();
+                else
+                    startReplay(seed);
+            }
+        }
+
+        // Start looking for hints on whatever the game started with
+        actions.stateChanged();
+    }
+
+    // Plays back the replay on the given file, which must be of a game with the same rules
+    public static GameScreen playback(final Klooni game, final File file) throws IOException {
+        final ReplayReader playback = new ReplayReader(new FileInputStream(file));
+        if ((playback.getGameMode() != GAME_MODE_SCORE && playback.getGameMode() != GAME_MODE_TIME)
+                || playback.getBoardSize() != BOARD_SIZE || playback.getHandSize() != HOLDER_PIECE_COUNT) {
+            playback.close();
+            throw new IOException("The replay is of a game with different rules.");
         }
+        return new GameScreen(game, playback.getGameMode(), false, playback);
     }
 
     //endregion
@@ -145,6 +236,17 @@ class GameScreen implements Screen, InputProcessor, BinSerializable {
         return true;
     }
 
+    // Counts the piece that was just put (the score was the given one before it) and
+    // clears the lines it completed with the given effect, returning the bonus earned
+    private int countPut(final PieceHolder.DropResult result, int score, final IEffectFactory effect) {
+        // Must be recorded before the complete lines are cleared
+        actions.recordMove(result, score);
+        scorer.addPieceScore(result.area);
+        int bonus = scorer.addBoardScore(board.clearComplete(effect), board.cellCount);
+        actions.recordScore();
+        return bonus;
+    }
+
     private void doGameOver(final String gameOverReason) {
         if (!gameOverDone) {
             gameOverDone = true;
@@ -158,6 +260,8 @@ class GameScreen implements Screen, InputProcessor, BinSerializable {
             // The user should not be able to return to the game if its game over
             if (gameMode == GAME_MODE_SCORE)
                 deleteSave();
+            else
+                finishReplay();
         }
     }
 
@@ -190,12 +294,17 @@ class GameScreen implements Screen, InputProcessor, BinSerializable {
         Klooni.theme.glClearBackground();
         Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
 
+        if (playback != null)
+            playBack(delta);
+
         if (scorer.isGameOver() && !pauseMenu.isShown()) {
             // TODO A bit hardcoded (timeOver = scorer instanceof TimeScorer)
             // Perhaps have a better mode to pass the required texture to overlay
             doGameOver(scorer.gameOverReason());
         }
 
+        // The cells are drawn from their cache before the batch begins, so it's never flushed for them
+        board.drawCellCache(batch);
         batch.begin();
 
         scorer.draw(batch);
@@ -216,6 +325,11 @@ class GameScreen implements Screen, InputProcessor, BinSerializable {
     @Override
     public void dispose() {
         pauseMenu.dispose();
+        actions.dispose();
+        board.dispose();
+        journal.close();
+        stopReplay();
+        stopPlayback();
     }
 
     //endregion
@@ -224,6 +338,13 @@ class GameScreen implements Screen, InputProcessor, BinSerializable {
 
     @Override
     public boolean keyUp(int keycode) {
+        if (playback != null) {
+            if (keycode == Input.Keys.BACK || keycode == Input.Keys.ESCAPE)
+                game.transitionTo(new MainMenuScreen(game));
+
+            return false;
+        }
+
         if (keycode == Input.Keys.P || keycode == Input.Keys.BACK) // Pause
             showPauseMenu();
 
@@ -232,10 +353,21 @@ class GameScreen implements Screen, InputProcessor, BinSerializable {
 
     @Override
     public boolean touchDown(int screenX, int screenY, int pointer, int button) {
+        if (playback != null) {
+            // Every touch plays the replay faster, until it goes back to the slowest
+            playbackSpeed = (playbackSpeed + 1) % PLAYBACK_SPEEDS.length;
+            Gdx.app.log("GameScreen", "Playing back at x" + PLAYBACK_SPEEDS[playbackSpeed]);
+            return true;
+        }
+
         Actions.Action action = actions.onPress();
         if (action == Actions.Action.Pause) {
             showPauseMenu();
         }
+        if (action == Actions.Action.Undo || action == Actions.Action.Redo) {
+            recordAction(action);
+            journalAction(action);
+        }
         if (action != Actions.Action.None) {
             return true;
         }
@@ -244,18 +376,17 @@ class GameScreen implements Screen, InputProcessor, BinSerializable {
 
     @Override
     public boolean touchUp(int screenX, int screenY, int pointer, int button) {
-        actions.recordState();
+        if (playback != null)
+            return true;
+
+        final int score = scorer.getCurrentScore();
         PieceHolder.DropResult result = holder.dropPiece();
-        if (!result.dropped) {
-            actions.discardLastState();
+        if (!result.dropped)
             return false;
-        }
 
-        if (!result.onBoard) {
-            actions.discardLastState();
-        } else {
-            scorer.addPieceScore(result.area);
-            int bonus = scorer.addBoardScore(board.clearComplete(game.effect), board.cellCount);
+        if (result.onBoard) {
+            int bonus = countPut(result, score, game.effect);
+            recordPut(result);
             if (bonus > 0) {
                 bonusParticleHandler.addBonus(result.pieceCenter, bonus);
                 if (Klooni.soundsEnabled()) {
@@ -266,6 +397,9 @@ class GameScreen implements Screen, InputProcessor, BinSerializable {
             // After the piece was put, check if it's game over
             if (isGameOver()) {
                 doGameOver("no moves left");
+            } else {
+                actions.stateChanged();
+                journalPut(result);
             }
         }
         return true;
@@ -313,6 +447,209 @@ class GameScreen implements Screen, InputProcessor, BinSerializable {
 
     //endregion
 
+    //region Recording replays
+
+    // The replay of the score mode is kept apart until the game is over, since the game
+    // can be continued later, but the one of the time mode is finished from the start
+    private File replayFile() {
+        return gameMode == GAME_MODE_SCORE
+                ? Gdx.files.local(REPLAY_FILENAME).file()
+                : newReplayFile();
+    }
+
+    private static File newReplayFile() {
+        final FileHandle folder = Gdx.files.local(REPLAYS_FOLDER);
+        folder.mkdirs();
+        return folder.child(System.currentTimeMillis() + ".replay").file();
+    }
+
+    // Starts recording the game, whose pieces come from the given seed
+    private void startReplay(long seed) {
+        // Anything still recorded there is of a game which couldn't be loaded
+        finishReplay();
+        try {
+            replay = new ReplayWriter(new FileOutputStream(replayFile()));
+            if (gameMode == GAME_MODE_SCORE)
+                scoreReplay = replay;
+
+            replay.start(gameMode, BOARD_SIZE, HOLDER_PIECE_COUNT, seed);
+        } catch (IOException e) {
+            e.printStackTrace();
+            stopReplay();
+        }
+    }
+
+    // Keeps recording the replay of the game that was just loaded, but only if playing it
+    // back ends where the game was saved (otherwise a move was lost before being recorded)
+    private void resumeReplay() {
+        final File file = Gdx.files.local(REPLAY_FILENAME).file();
+        if (!file.exists())
+            return;
+
+        try {
+            final ReplayReader reader = new ReplayReader(new FileInputStream(file));
+            final GameState state;
+            try {
+                state = reader.newGame();
+                reader.playAll(state);
+            } finally {
+                reader.close();
+            }
+
+            if (reader.getGameMode() == gameMode && isSameGame(state))
+                scoreReplay = replay = ReplayWriter.resume(file, reader.getLength());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        // Whatever was recorded is still a replay, but of a different game now
+        if (replay == null)
+            finishReplay();
+    }
+
+    // Determines whether the game played back is the one on screen
+    private boolean isSameGame(final GameState state) {
+        if (state.board.size != board.cellCount || state.getHandSize() != holder.count
+                || state.getScore() != scorer.getCurrentScore() || state.board.getHash() != board.getHash())
+            return false;
+
+        for (int i = 0; i < holder.count; ++i) {
+            final Shape shape = holder.pieces[i] == null ? null : holder.pieces[i].shape;
+            if (state.getShape(i) != shape)
+                return false;
+        }
+        return true;
+    }
+
+    private void recordPut(final PieceHolder.DropResult result) {
+        if (replay != null) {
+            try {
+                replay.appendPut(result.slot, result.x, result.y);
+            } catch (IOException e) {
+                e.printStackTrace();
+                stopReplay();
+            }
+        }
+    }
+
+    private void recordAction(final Actions.Action action) {
+        if (replay != null) {
+            try {
+                if (action == Actions.Action.Undo)
+                    replay.appendUndo();
+                else
+                    replay.appendRedo();
+            } catch (IOException e) {
+                e.printStackTrace();
+                stopReplay();
+            }
+        }
+    }
+
+    // Stops recording, leaving the replay as it is
+    private void stopReplay() {
+        if (replay != null) {
+            closeReplay(replay);
+            if (scoreReplay == replay)
+                scoreReplay = null;
+
+            replay = null;
+        }
+    }
+
+    private static void closeReplay(final ReplayWriter writer) {
+        try {
+            writer.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    // Stops recording and moves the replay of the score mode with the rest, since it's over
+    private void finishReplay() {
+        stopReplay();
+        if (gameMode != GAME_MODE_SCORE)
+            return;
+
+        // Files can't be renamed while open on some platforms
+        if (scoreReplay != null) {
+            closeReplay(scoreReplay);
+            scoreReplay = null;
+        }
+
+        final File file = Gdx.files.local(REPLAY_FILENAME).file();
+        final File kept = newReplayFile();
+        if (file.exists() && !file.renameTo(kept))
+            Gdx.app.error("GameScreen", "Could not keep the last replay, " + file + " could not be moved to " + kept);
+    }
+
+    //endregion
+
+    //region Playing back replays
+
+    // Plays the moves of the replay as time goes by, as fast as the speed chosen
+    private void playBack(float delta) {
+        playbackTime += delta * PLAYBACK_SPEEDS[playbackSpeed];
+        while (playbackTime >= PLAYBACK_MOVE_SECONDS && !playbackDone) {
+            playbackTime -= PLAYBACK_MOVE_SECONDS;
+            try {
+                if (!playBackMove())
+                    stopPlayback();
+            } catch (IOException e) {
+                e.printStackTrace();
+                stopPlayback();
+            }
+        }
+    }
+
+    // Plays the next move of the replay as if the player had made it, returning
+    // false if there are no more and throwing if it could not be made
+    private boolean playBackMove() throws IOException {
+        final boolean valid;
+        switch (playback.next()) {
+            case ReplayReader.PUT:
+                final int score = scorer.getCurrentScore();
+                final PieceHolder.DropResult result = holder.putPiece(
+                        playback.getSlot(), playback.getX(), playback.getY(), null);
+
+                valid = result != null;
+                if (valid) {
+                    final int bonus = countPut(result, score, game.effect);
+                    if (bonus > 0) {
+                        bonusParticleHandler.addBonus(result.pieceCenter, bonus);
+                        if (Klooni.soundsEnabled())
+                            game.playEffectSound();
+                    }
+                }
+                break;
+            case ReplayReader.UNDO:
+                valid = actions.undoLastMove();
+                break;
+            case ReplayReader.REDO:
+                valid = actions.redoLastMove();
+                break;
+            default:
+                return false;
+        }
+
+        if (!valid)
+            throw new IOException("Invalid move found on the replay.");
+
+        return true;
+    }
+
+    // Stops playing back, leaving the game as the replay left it
+    private void stopPlayback() {
+        if (playback != null && !playbackDone) {
+            playbackDone = true;
+            try {
+                playback.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    //endregion
+
     //region Saving and loading
 
     private void saveMoney() {
@@ -326,30 +663,129 @@ class GameScreen implements Screen, InputProcessor, BinSerializable {
     private void save() {
         // Only save if the game is not over and the game mode is not the time mode. It
         // makes no sense to save the time game mode since it's supposed to be something quick.
-        // Don't save either if the score is 0, which means the player did nothing.
-        if (gameOverDone || gameMode != GAME_MODE_SCORE || scorer.getCurrentScore() == 0)
+        // Don't save either if the score is 0 and nothing was ever saved, which means the player did nothing.
+        if (gameOverDone || gameMode != GAME_MODE_SCORE || playback != null
+                || (scorer.getCurrentScore() == 0 && !journal.isStarted()))
             return;
 
-        final FileHandle handle = Gdx.files.local(SAVE_DAT_FILENAME);
+        snapshot(false);
+    }
+
+    // Saves the whole game and starts a new journal for the moves made after it.
+    // If wait is true, the save is on disk once this returns.
+    private void snapshot(boolean wait) {
+        saveMoney();
+        saveSequence++;
+
         try {
-            BinSerializer.serialize(this, handle.write(false));
+            saveWriter.write(Gdx.files.local(SAVE_DAT_FILENAME).file(), BinSerializer.serialize(this));
+
+            // The new journal replaces the one before the previous save, so its file is
+            // only written once this save is on disk, and the previous journal is no longer
+            // needed then either. The save writer does both in order, so nobody waits here.
+            final long sequence = saveSequence;
+            final File previousJournal = journal.start(sequence);
+            saveWriter.run(journal.getFile(), new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        journal.open(sequence);
+                    } catch (IOException e) {
+                        // The journal was closed, so the next move saves the whole game again
+                        e.printStackTrace();
+                    }
+                }
+            });
+            saveWriter.delete(previousJournal);
+            if (wait)
+                saveWriter.flush();
         } catch (IOException e) {
-            // Should never happen but what else could be done if the game wasn't saved?
+            // Should never happen, but if it does the moves will be saved on the next save
             e.printStackTrace();
+            journal.close();
         }
     }
 
+    // Whether the last move should be saved with the whole game instead of on the journal
+    private boolean shouldSnapshot() {
+        return !journal.isStarted() || journal.getRecordCount() >= JOURNAL_MAX_MOVES;
+    }
+
+    // Moves can only go on the journal once it's open, which happens as soon as the save
+    // before it is on disk, so this only waits if the save is still being written
+    private void waitForJournal() {
+        if (journal.isStarted() && !journal.isOpen())
+            saveWriter.flush();
+    }
+
+    // Makes the piece that was just put durable, on the journal and with a new save if it's due.
+    // The move goes on the journal even then, so it's there until the new save is on disk.
+    private void journalPut(final PieceHolder.DropResult result) {
+        if (gameMode != GAME_MODE_SCORE)
+            return;
+
+        waitForJournal();
+        if (!journal.isStarted()) {
+            snapshot(false);
+            return;
+        }
+
+        // If it was the last piece of the hand, the new hand is saved too
+        Shape[] hand = null;
+        if (holder.getAvailablePieces().size == holder.count) {
+            hand = new Shape[holder.count];
+            for (int i = 0; i < hand.length; ++i)
+                hand[i] = holder.pieces[i].shape;
+        }
+
+        try {
+            journal.appendPut(result.slot, result.x, result.y, hand);
+        } catch (IOException e) {
+            e.printStackTrace();
+            journal.close();
+        }
+        if (shouldSnapshot())
+            snapshot(false);
+    }
+
+    // Makes the undo or redo that was just done durable, the same way as journalPut()
+    private void journalAction(final Actions.Action action) {
+        if (gameMode != GAME_MODE_SCORE)
+            return;
+
+        waitForJournal();
+        if (!journal.isStarted()) {
+            snapshot(false);
+            return;
+        }
+
+        try {
+            if (action == Actions.Action.Undo)
+                journal.appendUndo();
+            else
+                journal.appendRedo();
+        } catch (IOException e) {
+            e.printStackTrace();
+            journal.close();
+        }
+        if (shouldSnapshot())
+            snapshot(false);
+    }
+
     private void deleteSave() {
-        final FileHandle handle = Gdx.files.local(SAVE_DAT_FILENAME);
-        if (handle.exists())
-            handle.delete();
+        saveWriter.delete(Gdx.files.local(SAVE_DAT_FILENAME).file());
+        journal.delete();
+        // The game can't be continued anymore, so neither can its replay
+        finishReplay();
     }
 
     static boolean hasSavedData() {
+        saveWriter.flush();
         return Gdx.files.local(SAVE_DAT_FILENAME).exists();
     }
 
     private boolean tryLoad() {
+        saveWriter.flush();
         final FileHandle handle = Gdx.files.local(SAVE_DAT_FILENAME);
         if (handle.exists()) {
             try {
@@ -357,20 +793,54 @@ class GameScreen implements Screen, InputProcessor, BinSerializable {
                 // No cheating! We need to load the previous money
                 // or it would seem like we earned it on this game
                 savedMoneyScore = scorer.getCurrentScore();
-
-                // After it's been loaded, delete the save file
-                deleteSave();
-                return true;
             } catch (IOException ignored) {
+                return false;
+            }
+
+            // The moves made after the save was written are on the journal
+            try {
+                saveSequence = journal.replay(saveSequence, new MoveJournal.Player() {
+                    @Override
+                    public void put(int slot, int x, int y, Shape[] hand) throws IOException {
+                        final int score = scorer.getCurrentScore();
+                        final PieceHolder.DropResult result = holder.putPiece(slot, x, y, hand);
+                        if (result == null)
+                            throw new IOException("Invalid move found on the journal.");
+
+                        countPut(result, score, null);
+                    }
+
+                    @Override
+                    public void undo() throws IOException {
+                        if (!actions.undoLastMove())
+                            throw new IOException("Invalid undo found on the journal.");
+                    }
+
+                    @Override
+                    public void redo() throws IOException {
+                        if (!actions.redoLastMove())
+                            throw new IOException("Invalid redo found on the journal.");
+                    }
+                });
+            } catch (IOException e) {
+                // The moves replayed until then are kept, the rest are lost
+                e.printStackTrace();
             }
+
+            // Everything is in a single save again, which must be on disk before
+            // a new journal is started since the last one was never saved whole
+            snapshot(true);
+            return true;
         }
         return false;
     }
 
     @Override
     public void write(DataOutputStream out) throws IOException {
-        // gameMode, board, holder, scorer
-        out.writeInt(gameMode);
+        // gameMode, saveSequence, random, board, holder, scorer, actions
+        out.writeByte(gameMode);
+        out.writeLong(saveSequence);
+        random.write(out);
         board.write(out);
         holder.write(out);
         scorer.write(out);
@@ -378,15 +848,21 @@ class GameScreen implements Screen, InputProcessor, BinSerializable {
     }
 
     @Override
-    public void read(DataInputStream in) throws IOException {
-        int savedGameMode = in.readInt();
+    public void read(DataInputStream in, int version) throws IOException {
+        int savedGameMode = version < BinSerializer.PACKED_VERSION ? in.readInt() : in.readUnsignedByte();
         if (savedGameMode != gameMode)
             throw new IOException("A different game mode was saved. Cannot load the save data.");
 
-        board.read(in);
-        holder.read(in);
-        scorer.read(in);
-        actions.read(in);
+        saveSequence = version < BinSerializer.JOURNAL_VERSION ? 0 : in.readLong();
+
+        // Older versions keep the random pieces they started with
+        if (version >= BinSerializer.RANDOM_VERSION)
+            random.read(in, version);
+
+        board.read(in, version);
+        holder.read(in, version);
+        scorer.read(in, version);
+        actions.read(in, version);
     }
 
     //endregion
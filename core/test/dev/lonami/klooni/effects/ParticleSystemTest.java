@@ -0,0 +1,365 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.effects;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.math.Affine2;
+import com.badlogic.gdx.math.Interpolation;
+import com.badlogic.gdx.math.Matrix4;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+
+import dev.lonami.klooni.game.SimulationClock;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+// Once the particles have grown to the limit, a frame full of them (spawning,
+// stepping and drawing) must not allocate anything, as the effects promise,
+// and never draw more than the limit (even if some particles are lines).
+public class ParticleSystemTest {
+
+    private static final int WARM_UP_FRAMES = 200;
+    private static final int FRAMES = 500;
+
+    // Enough new particles every frame to keep the system full
+    private static final int SPAWNS_PER_FRAME = 64;
+
+    // One of the particles of every frame is a whole line of a board this big
+    private static final int LINE_LENGTH = 10;
+
+    // Frame times that are not a whole number of steps, and some which are several
+    private static final float[] DELTAS = {1f / 60f, 1f / 144f, 1f / 30f, 0.007f, 0.1f};
+
+    private final ParticleSystem particles = new ParticleSystem(16);
+    private final SimulationClock clock = new SimulationClock();
+    private final CountingBatch batch = new CountingBatch();
+    private final TextureRegion region = new TextureRegion();
+    private final Color color = new Color(0.2f, 0.4f, 0.6f, 1f);
+    private final Color otherColor = new Color(0.8f, 0.6f, 0.4f, 1f);
+
+    private int frame;
+
+    @Test
+    public void framesAtTheLimitDoNotAllocate() throws IllegalAccessException {
+        final com.sun.management.ThreadMXBean threads = threadBean();
+        final long thread = Thread.currentThread().getId();
+
+        for (int i = 0; i < WARM_UP_FRAMES; ++i)
+            frame();
+
+        final List<Object> arrays = arrays();
+
+        // Asking for the bytes allocated may allocate on its own, which isn't the frames' fault
+        final long overhead = -threads.getThreadAllocatedBytes(thread) + threads.getThreadAllocatedBytes(thread);
+        final long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < FRAMES; ++i)
+            frame();
+        final long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        assertTrue("Frames allocated " + allocated + " bytes", allocated <= overhead);
+        assertTrue("Only " + batch.maxQuads + " were drawn at once",
+                batch.maxQuads > ParticleSystem.MAX_PARTICLES - LINE_LENGTH);
+        assertTrue("Drew " + batch.maxQuads + " at once, more than the limit",
+                batch.maxQuads <= ParticleSystem.MAX_PARTICLES);
+
+        final List<Object> after = arrays();
+        for (int i = 0; i < arrays.size(); ++i)
+            assertSame("An array of the particles grew", arrays.get(i), after.get(i));
+    }
+
+    // When there's no room, the particles spawned first are the ones which make
+    // room, even if others died in between (and took the place of the last ones)
+    @Test
+    public void oldestParticlesMakeRoom() {
+        final ParticleSystem full = new ParticleSystem(ParticleSystem.MAX_PARTICLES);
+        for (int i = 0; i < ParticleSystem.MAX_PARTICLES; ++i)
+            full.setTexture(full.spawn(i, 0f, 1f, color), region);
+
+        full.setTiming(3, 0f, 1f, 0f);
+        full.update(SimulationClock.STEP, 0f, 0f);
+        assertEquals(ParticleSystem.MAX_PARTICLES - 1, full.size());
+
+        // The line needs room for all its copies, so the oldest 9 besides the dead one go
+        full.setTexture(full.spawn(5000f, 0f, 1f, LINE_LENGTH, false, color), region);
+        batch.minX = Float.POSITIVE_INFINITY;
+        full.draw(batch, 1f);
+        assertEquals(LINE_LENGTH, batch.minX, 0f);
+        assertEquals(ParticleSystem.MAX_PARTICLES - LINE_LENGTH + 1, full.size());
+    }
+
+    // Every copy of a line is drawn with its own color if it was given one
+    @Test
+    public void copiesKeepTheirColor() {
+        final int i = particles.spawn(0f, 0f, 1f, 3, false, color);
+        particles.setCopyColor(i, 1, otherColor);
+        particles.setFade(i, 0.5f, 0f);
+        particles.setTexture(i, region);
+
+        batch.recordGreens = true;
+        particles.draw(batch, 1f);
+        assertEquals(3, batch.greens.size());
+        assertArrayEquals(new Object[]{color.g, otherColor.g, color.g}, batch.greens.toArray());
+        assertEquals(0.5f, batch.alpha, 0f);
+    }
+
+    // Spawns the particles the effects would, then steps and draws them like Board.draw
+    private void frame() {
+        for (int i = 0; i < SPAWNS_PER_FRAME; ++i) {
+            final int p = i == 0
+                    ? particles.spawn(0f, 300f, 20f, LINE_LENGTH, frame % 2 == 0, color)
+                    : particles.spawn(i * 4f, 300f + i, 20f, color);
+
+            // The line has cells of different colors, as it would on a board
+            if (i == 0)
+                for (int c = 0; c < LINE_LENGTH; c += 2)
+                    particles.setCopyColor(p, c, otherColor);
+
+            switch (i % 4) {
+                case 0: // explode
+                    particles.setMotion(p, i - 32f, i * 2f, 0f, -400f, 0.99f);
+                    break;
+                case 1: // evaporate
+                    particles.setMotion(p, 0f, 60f, 0f, 0f, 1f);
+                    particles.setSway(p, 8f, 4f, i);
+                    particles.setFade(p, 1f, -0.5f);
+                    break;
+                case 2: // vanish
+                    particles.setTiming(p, -0.1f, 1f, 5f);
+                    particles.setShrink(p, 0f, Interpolation.elasticIn, 0.5f, 0.5f);
+                    break;
+                case 3: // spin
+                    particles.setTiming(p, 0f, 2f, 10f);
+                    particles.setSpin(p, 90f);
+                    break;
+            }
+            particles.setTexture(p, region);
+        }
+
+        final int steps = clock.advance(DELTAS[frame++ % DELTAS.length]);
+        for (int i = 0; i < steps; ++i)
+            particles.update(SimulationClock.STEP, 0f, 0f);
+
+        batch.quads = 0;
+        particles.draw(batch, clock.getAlpha());
+        batch.maxQuads = Math.max(batch.maxQuads, batch.quads);
+    }
+
+    // Every array the particles are kept on, to tell if any was replaced
+    private List<Object> arrays() throws IllegalAccessException {
+        final List<Object> result = new ArrayList<Object>();
+        for (Field field : ParticleSystem.class.getDeclaredFields()) {
+            if (field.getType().isArray()) {
+                field.setAccessible(true);
+                result.add(field.get(particles));
+            }
+        }
+        return result;
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        return threads;
+    }
+
+    // Counts what would be drawn, without drawing anything
+    private static class CountingBatch implements Batch {
+        int quads, maxQuads;
+
+        // Only recorded by the tests which need them, since they allocate
+        float minX = Float.POSITIVE_INFINITY;
+        float green, alpha;
+        final List<Float> greens = new ArrayList<Float>();
+        boolean recordGreens;
+
+        @Override
+        public void draw(TextureRegion region, float x, float y, float width, float height) {
+            quads++;
+            minX = Math.min(minX, x);
+            if (recordGreens)
+                greens.add(green);
+        }
+
+        @Override
+        public void draw(TextureRegion region, float x, float y, float originX, float originY,
+                         float width, float height, float scaleX, float scaleY, float rotation) {
+            quads++;
+        }
+
+        @Override
+        public void begin() {
+        }
+
+        @Override
+        public void end() {
+        }
+
+        @Override
+        public void setColor(Color tint) {
+        }
+
+        @Override
+        public void setColor(float r, float g, float b, float a) {
+            green = g;
+            alpha = a;
+        }
+
+        @Override
+        public void setColor(float color) {
+        }
+
+        @Override
+        public Color getColor() {
+            return null;
+        }
+
+        @Override
+        public float getPackedColor() {
+            return 0;
+        }
+
+        @Override
+        public void draw(Texture texture, float x, float y, float originX, float originY, float width,
+                         float height, float scaleX, float scaleY, float rotation, int srcX, int srcY,
+                         int srcWidth, int srcHeight, boolean flipX, boolean flipY) {
+        }
+
+        @Override
+        public void draw(Texture texture, float x, float y, float width, float height,
+                         int srcX, int srcY, int srcWidth, int srcHeight, boolean flipX, boolean flipY) {
+        }
+
+        @Override
+        public void draw(Texture texture, float x, float y, int srcX, int srcY, int srcWidth, int srcHeight) {
+        }
+
+        @Override
+        public void draw(Texture texture, float x, float y, float width, float height,
+                         float u, float v, float u2, float v2) {
+        }
+
+        @Override
+        public void draw(Texture texture, float x, float y) {
+        }
+
+        @Override
+        public void draw(Texture texture, float x, float y, float width, float height) {
+        }
+
+        @Override
+        public void draw(Texture texture, float[] spriteVertices, int offset, int count) {
+        }
+
+        @Override
+        public void draw(TextureRegion region, float x, float y) {
+        }
+
+        @Override
+        public void draw(TextureRegion region, float x, float y, float originX, float originY, float width,
+                         float height, float scaleX, float scaleY, float rotation, boolean clockwise) {
+        }
+
+        @Override
+        public void draw(TextureRegion region, float width, float height, Affine2 transform) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void disableBlending() {
+        }
+
+        @Override
+        public void enableBlending() {
+        }
+
+        @Override
+        public void setBlendFunction(int srcFunc, int dstFunc) {
+        }
+
+        @Override
+        public int getBlendSrcFunc() {
+            return 0;
+        }
+
+        @Override
+        public int getBlendDstFunc() {
+            return 0;
+        }
+
+        @Override
+        public Matrix4 getProjectionMatrix() {
+            return null;
+        }
+
+        @Override
+        public Matrix4 getTransformMatrix() {
+            return null;
+        }
+
+        @Override
+        public void setProjectionMatrix(Matrix4 projection) {
+        }
+
+        @Override
+        public void setTransformMatrix(Matrix4 transform) {
+        }
+
+        @Override
+        public void setShader(ShaderProgram shader) {
+        }
+
+        @Override
+        public ShaderProgram getShader() {
+            return null;
+        }
+
+        @Override
+        public boolean isBlendingEnabled() {
+            return true;
+        }
+
+        @Override
+        public boolean isDrawing() {
+            return true;
+        }
+
+        @Override
+        public void dispose() {
+        }
+    }
+}
@@ -21,6 +21,8 @@ import com.badlogic.gdx.Files;
 import com.badlogic.gdx.backends.lwjgl.LwjglApplication;
 import com.badlogic.gdx.backends.lwjgl.LwjglApplicationConfiguration;
 
+import java.io.File;
+
 import dev.lonami.klooni.Klooni;
 
 class DesktopLauncher {
@@ -32,6 +34,12 @@ class DesktopLauncher {
         config.addIcon("ic_launcher/icon128.png", Files.FileType.Internal);
         config.addIcon("ic_launcher/icon32.png", Files.FileType.Internal);
         config.addIcon("ic_launcher/icon16.png", Files.FileType.Internal);
-        new LwjglApplication(new Klooni(null), config);
+
+        // A replay can be given to play it back, as in "--replay replays/1500000000000.replay"
+        File replay = null;
+        if (arg.length == 2 && arg[0].equals("--replay"))
+            replay = new File(arg[1]);
+
+        new LwjglApplication(new Klooni(null, replay), config);
     }
 }
@@ -0,0 +1,448 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import dev.lonami.klooni.serializer.BinSerializable;
+import dev.lonami.klooni.serializer.BinSerializer;
+
+// The actual state of a board: which cells are filled and with which color.
+//
+// The cell at (x, y) maps to the bit (y * size + x), spread over as many
+// longs as needed (two of them for the usual 10x10 board). This way, checking
+// whether a piece fits or which lines are complete is a matter of a few
+// AND/OR operations against precomputed masks, instead of walking every cell.
+//
+// The color plane is only needed to know how to draw a filled cell, and
+// it's kept in sync with the bits (an empty cell always has color -1).
+public class BitBoard implements BinSerializable {
+
+    //region Members
+
+    public final int size;
+    public final int wordCount;
+
+    private final long[] bits;
+    private final byte[] colors;
+
+    // Masks of every shape at every offset for boards of this size
+    public final Placements placements;
+
+    // How many cells are filled on every row and column, so only the
+    // lines a shape was put on need to be checked to find complete ones
+    private final int[] rowFill;
+    private final int[] colFill;
+
+    // XOR of the keys of every filled cell (see Zobrist)
+    private long hash;
+
+    // How many offsets every shape has left, only kept if trackLegalMoves() is called
+    private LegalMoveIndex legalMoves;
+
+    //endregion
+
+    //region Constructors
+
+    public BitBoard(int size) {
+        this.size = size;
+        wordCount = (size * size + 63) >>> 6;
+
+        bits = new long[wordCount];
+        placements = Placements.forSize(size);
+        colors = new byte[size * size];
+        for (int i = 0; i < colors.length; ++i)
+            colors[i] = -1;
+
+        rowFill = new int[size];
+        colFill = new int[size];
+    }
+
+    public BitBoard(BitBoard other) {
+        this(other.size);
+        set(other);
+    }
+
+    //endregion
+
+    //region Private methods
+
+    // True if the given shape at the given coordinates is not outside the bounds of the board
+    private boolean inBounds(Shape shape, int x, int y) {
+        return x >= 0 && y >= 0 && x + shape.cols <= size && y + shape.rows <= size;
+    }
+
+    // True if none of the cells in the mask, starting at the given offset, are filled
+    private boolean fits(long[] masks, int offset) {
+        for (int w = 0; w < wordCount; ++w)
+            if ((bits[w] & masks[offset + w]) != 0)
+                return false;
+
+        return true;
+    }
+
+    // The cells in the mask must be empty
+    private void fill(long[] masks, int offset, int colorIndex) {
+        for (int w = 0; w < wordCount; ++w) {
+            final long mask = masks[offset + w];
+            bits[w] |= mask;
+            for (long m = mask; m != 0; m &= m - 1) {
+                final int index = (w << 6) + Long.numberOfTrailingZeros(m);
+                colors[index] = (byte) colorIndex;
+                hash ^= placements.cellKeys[index];
+                rowFill[placements.rowOf[index]]++;
+                colFill[placements.colOf[index]]++;
+                if (legalMoves != null)
+                    legalMoves.filled(index);
+            }
+        }
+    }
+
+    // Determines whether the mask has no bits set past the last cell
+    boolean isInside(long[] mask) {
+        return mask[wordCount - 1] >>> (colors.length - 1 & 63) >>> 1 == 0;
+    }
+
+    private void addLine(long[] lineMask, long[] mask) {
+        for (int w = 0; w < wordCount; ++w)
+            mask[w] |= lineMask[w];
+    }
+
+    //endregion
+
+    //region Public methods
+
+    // Copies the state of another board of the same size into this one
+    public void set(BitBoard other) {
+        System.arraycopy(other.bits, 0, bits, 0, wordCount);
+        System.arraycopy(other.colors, 0, colors, 0, colors.length);
+        System.arraycopy(other.rowFill, 0, rowFill, 0, size);
+        System.arraycopy(other.colFill, 0, colFill, 0, size);
+        hash = other.hash;
+        if (legalMoves != null) {
+            if (other.legalMoves != null)
+                legalMoves.set(other.legalMoves);
+            else
+                legalMoves.rebuild(bits);
+        }
+    }
+
+    // Keeps an index with the offsets every shape can still be put on up to
+    // date as cells are filled and cleared, which makes canPutAnywhere() and
+    // countPlacements() free. Filling and clearing cells becomes a bit slower
+    // though, so boards that are only used for a moment don't need this.
+    public void trackLegalMoves() {
+        if (legalMoves == null) {
+            legalMoves = new LegalMoveIndex(placements);
+            legalMoves.rebuild(bits);
+        }
+    }
+
+    // The hash of which cells are filled (their color doesn't matter),
+    // so boards with the same cells filled have the same hash
+    public long getHash() {
+        return hash;
+    }
+
+    public long[] newMask() {
+        return new long[wordCount];
+    }
+
+    public boolean isEmpty(int x, int y) {
+        final int index = y * size + x;
+        return (bits[index >>> 6] & (1L << index)) == 0;
+    }
+
+    // The filled cells of the given row as bits, the lowest one being x = 0
+    public int getRow(int y) {
+        final int index = y * size;
+        final int word = index >>> 6;
+        final int shift = index & 63;
+
+        long row = bits[word] >>> shift;
+        // The row may be split between this word and the next one
+        if (shift + size > 64)
+            row |= bits[word + 1] << (64 - shift);
+
+        return (int) (row & ((1L << size) - 1));
+    }
+
+    // Negative color index indicates that the cell is empty
+    public int getColor(int x, int y) {
+        return colors[y * size + x];
+    }
+
+    public int filledCount() {
+        int count = 0;
+        for (int w = 0; w < wordCount; ++w)
+            count += Long.bitCount(bits[w]);
+
+        return count;
+    }
+
+    // This only tests for the shape on the given coordinates, not the whole board
+    public boolean canPut(Shape shape, int x, int y) {
+        return inBounds(shape, x, y) && canPut(shape, placements.entry(shape, x, y));
+    }
+
+    // Same as above, but using an entry of the placements table
+    public boolean canPut(Shape shape, int entry) {
+        return fits(placements.masks[shape.id], entry * wordCount);
+    }
+
+    // Returns true iff the shape was put on the board
+    public boolean put(Shape shape, int x, int y, int colorIndex) {
+        return inBounds(shape, x, y) && put(shape, placements.entry(shape, x, y), colorIndex);
+    }
+
+    public boolean put(Shape shape, int entry, int colorIndex) {
+        final int offset = entry * wordCount;
+        if (!fits(placements.masks[shape.id], offset))
+            return false;
+
+        fill(placements.masks[shape.id], offset, colorIndex);
+        return true;
+    }
+
+    // True if the shape can be put anywhere on the board
+    public boolean canPutAnywhere(Shape shape) {
+        if (legalMoves != null)
+            return legalMoves.count(shape) != 0;
+
+        final long[] masks = placements.masks[shape.id];
+        for (int offset = 0; offset < masks.length; offset += wordCount)
+            if (fits(masks, offset))
+                return true;
+
+        return false;
+    }
+
+    // How many different offsets the shape can be put on
+    public int countPlacements(Shape shape) {
+        if (legalMoves != null)
+            return legalMoves.count(shape);
+
+        final long[] masks = placements.masks[shape.id];
+        int count = 0;
+        for (int offset = 0; offset < masks.length; offset += wordCount)
+            if (fits(masks, offset))
+                count++;
+
+        return count;
+    }
+
+    // Fills the given array with the placements entries where the
+    // shape can be put, returning how many of them there are.
+    // The array must be able to hold placements.count(shape) items.
+    public int findPlacements(Shape shape, int[] entries) {
+        final long[] masks = placements.masks[shape.id];
+        int count = 0;
+        for (int offset = 0, entry = 0; offset < masks.length; offset += wordCount, ++entry)
+            if (fits(masks, offset))
+                entries[count++] = entry;
+
+        return count;
+    }
+
+    // True if none of the cells in the mask are filled
+    public boolean fits(long[] mask) {
+        for (int w = 0; w < wordCount; ++w)
+            if ((bits[w] & mask[w]) != 0)
+                return false;
+
+        return true;
+    }
+
+    // Fills all the empty cells in the mask with the given color
+    public void fill(long[] mask, int colorIndex) {
+        for (int w = 0; w < wordCount; ++w) {
+            for (long m = mask[w] & ~bits[w]; m != 0; m &= m - 1) {
+                final int index = (w << 6) + Long.numberOfTrailingZeros(m);
+                hash ^= placements.cellKeys[index];
+                rowFill[placements.rowOf[index]]++;
+                colFill[placements.colOf[index]]++;
+                if (legalMoves != null)
+                    legalMoves.filled(index);
+            }
+            bits[w] |= mask[w];
+            for (long m = mask[w]; m != 0; m &= m - 1)
+                colors[(w << 6) + Long.numberOfTrailingZeros(m)] = (byte) colorIndex;
+        }
+    }
+
+    // Fills the cells in the mask with the given colors, one per cell in the
+    // order of their index (as given by getColors), so they can be restored
+    public void fill(long[] mask, byte[] colorsInMask) {
+        int i = 0;
+        for (int w = 0; w < wordCount; ++w) {
+            for (long m = mask[w]; m != 0; m &= m - 1) {
+                final int index = (w << 6) + Long.numberOfTrailingZeros(m);
+                if ((bits[w] & (m & -m)) == 0) {
+                    hash ^= placements.cellKeys[index];
+                    rowFill[placements.rowOf[index]]++;
+                    colFill[placements.colOf[index]]++;
+                    if (legalMoves != null)
+                        legalMoves.filled(index);
+                }
+                colors[index] = colorsInMask[i++];
+            }
+            bits[w] |= mask[w];
+        }
+    }
+
+    // Copies the color of every cell in the mask in the order of their index,
+    // returning how many there are. The array must be able to hold all of them.
+    public int getColors(long[] mask, byte[] colorsInMask) {
+        int i = 0;
+        for (int w = 0; w < wordCount; ++w)
+            for (long m = mask[w]; m != 0; m &= m - 1)
+                colorsInMask[i++] = colors[(w << 6) + Long.numberOfTrailingZeros(m)];
+
+        return i;
+    }
+
+    // Empties all the cells in the mask
+    public void clear(long[] mask) {
+        for (int w = 0; w < wordCount; ++w) {
+            for (long m = mask[w] & bits[w]; m != 0; m &= m - 1) {
+                final int index = (w << 6) + Long.numberOfTrailingZeros(m);
+                colors[index] = -1;
+                hash ^= placements.cellKeys[index];
+                rowFill[placements.rowOf[index]]--;
+                colFill[placements.colOf[index]]--;
+                if (legalMoves != null)
+                    legalMoves.cleared(index);
+            }
+            bits[w] &= ~mask[w];
+        }
+    }
+
+    // Fills the given mask with all the currently filled cells
+    public void filledMask(long[] mask) {
+        System.arraycopy(bits, 0, mask, 0, wordCount);
+    }
+
+    // Fills the given mask with the cells from all the complete rows and
+    // columns, returning how many of them there are. Both rows and columns
+    // are checked before anything is cleared, since clearing a row first
+    // could leave a column that was complete with an empty cell (and vice versa).
+    public int completeLines(long[] mask) {
+        return completeLines(0, 0, size, size, mask);
+    }
+
+    // Same as above, but only checking the lines the given shape at (x, y) is on.
+    // If lines are always cleared after putting a shape, no other line can be complete.
+    public int completeLines(Shape shape, int x, int y, long[] mask) {
+        return completeLines(x, y, shape.cols, shape.rows, mask);
+    }
+
+    private int completeLines(int x, int y, int cols, int rows, long[] mask) {
+        for (int w = 0; w < wordCount; ++w)
+            mask[w] = 0L;
+
+        int count = 0;
+        for (int i = y; i < y + rows; ++i) {
+            if (rowFill[i] == size) {
+                addLine(placements.rowMasks[i], mask);
+                count++;
+            }
+        }
+        for (int j = x; j < x + cols; ++j) {
+            if (colFill[j] == size) {
+                addLine(placements.colMasks[j], mask);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    //endregion
+
+    //region Serialization
+
+    @Override
+    public void write(DataOutputStream out) throws IOException {
+        // Filled cells as bits, then the color index of every filled cell
+        // in row-major order, which fits in 4 bits
+        for (int w = 0; w < wordCount; ++w)
+            out.writeLong(bits[w]);
+
+        int count = 0;
+        final byte[] filledColors = new byte[colors.length];
+        for (int i = 0; i < colors.length; ++i)
+            if (colors[i] >= 0)
+                filledColors[count++] = colors[i];
+
+        BinSerializer.writeNibbles(out, filledColors, count);
+    }
+
+    @Override
+    public void read(DataInputStream in, int version) throws IOException {
+        for (int i = 0; i < size; ++i)
+            rowFill[i] = colFill[i] = 0;
+        hash = 0L;
+
+        if (version < BinSerializer.PACKED_VERSION) {
+            // Color index of every cell in row-major order, negative if empty
+            for (int w = 0; w < wordCount; ++w)
+                bits[w] = 0L;
+
+            for (int i = 0; i < colors.length; ++i) {
+                final int colorIndex = in.readInt();
+                if (colorIndex >= Shape.COUNT)
+                    throw new IOException("Invalid color found on the board.");
+
+                colors[i] = colorIndex < 0 ? -1 : (byte) colorIndex;
+                if (colorIndex >= 0)
+                    bits[i >>> 6] |= 1L << i;
+            }
+        } else {
+            int count = 0;
+            for (int w = 0; w < wordCount; ++w) {
+                bits[w] = in.readLong();
+                count += Long.bitCount(bits[w]);
+            }
+            if (!isInside(bits))
+                throw new IOException("Invalid cells found outside the board.");
+
+            final byte[] filledColors = new byte[count];
+            BinSerializer.readNibbles(in, filledColors, count);
+            for (int i = 0; i < count; ++i)
+                if (filledColors[i] >= Shape.COUNT)
+                    throw new IOException("Invalid color found on the board.");
+
+            count = 0;
+            for (int i = 0; i < colors.length; ++i)
+                colors[i] = (bits[i >>> 6] & 1L << i) == 0 ? -1 : filledColors[count++];
+        }
+
+        for (int i = 0; i < colors.length; ++i) {
+            if (colors[i] >= 0) {
+                hash ^= placements.cellKeys[i];
+                rowFill[placements.rowOf[i]]++;
+                colFill[placements.colOf[i]]++;
+            }
+        }
+        if (legalMoves != null)
+            legalMoves.rebuild(bits);
+    }
+
+    //endregion
+}
@@ -0,0 +1,178 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+import java.util.Random;
+
+// A whole game without anything on screen: the board, the hand of
+// shapes that can be put on it and the score. This follows the same
+// rules as the game played on screen, so it can be used to simulate
+// as many games as wanted without a running application.
+//
+// Moves can also be undone and redone as they are on screen, but only
+// if asked for when creating the game, since every move has to be
+// recorded for it and games which are only simulated don't need to.
+public class GameState {
+
+    //region Members
+
+    public final BitBoard board;
+    private final Shape[] hand;
+    private final Random random;
+
+    // Scratch mask used to find the complete lines
+    private final long[] mask;
+
+    private int score;
+
+    // What every move changed, or null if moves can't be undone
+    private final UndoLog undoLog;
+
+    //endregion
+
+    //region Constructor
+
+    public GameState(int boardSize, int handSize, final Random random) {
+        this(boardSize, handSize, random, false);
+    }
+
+    public GameState(int boardSize, int handSize, final Random random, boolean undoable) {
+        this.random = random;
+        board = new BitBoard(boardSize);
+        hand = new Shape[handSize];
+        mask = board.newMask();
+        undoLog = undoable ? new UndoLog(board) : null;
+        takeMore();
+    }
+
+    //endregion
+
+    //region Private methods
+
+    // Determines whether all the shapes have been put (and the "hand" is finished)
+    private boolean handFinished() {
+        for (Shape shape : hand)
+            if (shape != null)
+                return false;
+
+        return true;
+    }
+
+    // Takes a new set of shapes. Should be called when there are no more shapes left
+    private void takeMore() {
+        for (int i = 0; i < hand.length; ++i)
+            hand[i] = Shape.random(random);
+    }
+
+    //endregion
+
+    //region Public methods
+
+    public int getHandSize() {
+        return hand.length;
+    }
+
+    // Returns the shape on the given slot of the hand, or null if it was already put
+    public Shape getShape(int slot) {
+        return hand[slot];
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public boolean canPut(int slot, int x, int y) {
+        return hand[slot] != null && board.canPut(hand[slot], x, y);
+    }
+
+    // Puts the shape on the given slot at the given coordinates and clears
+    // any complete line. Returns how many lines were cleared, or -1 if the
+    // shape could not be put there (in which case nothing changes).
+    public int put(int slot, int x, int y) {
+        final Shape shape = hand[slot];
+        if (shape == null || !board.put(shape, x, y, shape.colorIndex))
+            return -1;
+
+        if (undoLog != null)
+            undoLog.recordPut(shape, x, y, slot, score);
+
+        hand[slot] = null;
+        score += shape.area;
+
+        final int cleared = board.completeLines(shape, x, y, mask);
+        if (cleared > 0) {
+            if (undoLog != null)
+                undoLog.recordClear(mask);
+
+            board.clear(mask);
+            score += Rules.calculateClearScore(cleared, board.size);
+        }
+
+        if (handFinished()) {
+            takeMore();
+            if (undoLog != null)
+                undoLog.recordRefill(hand);
+        }
+
+        if (undoLog != null)
+            undoLog.recordScore(score);
+
+        return cleared;
+    }
+
+    // Undoes the last move, returning false if there was none (or moves can't be
+    // undone). The shape goes back to its slot, and if the move finished its hand,
+    // the hand goes back to only having that shape as it was before the move.
+    public boolean undo() {
+        if (undoLog == null || !undoLog.canUndo())
+            return false;
+
+        final int last = undoLog.position() - 1;
+        if (undoLog.getRefill(last) != null)
+            for (int i = 0; i < hand.length; ++i)
+                hand[i] = null;
+
+        hand[undoLog.getSlot(last)] = undoLog.getShape(last);
+        score = undoLog.getScore(last);
+        undoLog.undo();
+        return true;
+    }
+
+    // Redoes the last undone move, returning false if there was none. The hand taken
+    // after it (if any) is the same as it was, instead of taking a new one.
+    public boolean redo() {
+        if (undoLog == null || !undoLog.canRedo())
+            return false;
+
+        final int next = undoLog.position();
+        hand[undoLog.getSlot(next)] = null;
+        final Shape[] refill = undoLog.getRefill(next);
+        if (refill != null)
+            System.arraycopy(refill, 0, hand, 0, hand.length);
+
+        score = undoLog.getScoreAfter(next);
+        undoLog.redo();
+        return true;
+    }
+
+    public boolean isGameOver() {
+        return Rules.isGameOver(board, hand);
+    }
+
+    //endregion
+}
@@ -0,0 +1,175 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Searches for the best moves of a hand on a background thread, so the
+// answer is ready by the time it is needed without blocking anyone.
+//
+// The search is an anytime one: it starts with a very narrow (quick) search
+// and keeps widening it, publishing the best solution found after every
+// step, until the widest search is done or the time budget runs out.
+//
+// Nothing is searched until restart() is called with a state, and every
+// call cancels whatever was being searched and starts over. It doesn't need
+// to be called on every change, only when a hint for the new state is wanted.
+public class HintSearch {
+
+    //region Members
+
+    private final Solver solver;
+    private final Thread thread;
+
+    // The state to search for, written by restart() and copied by the search thread.
+    // Every restart increases the version, so stale solutions can be told apart.
+    private final BitBoard board;
+    private final Shape[] hand;
+    private int version;
+    private boolean stopped;
+
+    // Set when the version it was handed out with gets stale. The search checks
+    // it on its own, so it stops even if it hadn't started when it was set.
+    private AtomicBoolean cancelFlag = new AtomicBoolean();
+
+    // The best solution found so far, and the version it belongs to
+    private Solution best;
+    private int bestVersion = -1;
+
+    //endregion
+
+    //region Static members
+
+    private static final int FIRST_WIDTH = 1;
+    private static final int LAST_WIDTH = 64;
+
+    // Searching for longer than this won't make the hint much better
+    private static final long BUDGET_MILLIS = 3000;
+
+    //endregion
+
+    //region Constructor
+
+    public HintSearch(int boardSize, int handSize) {
+        // Leave a core for whoever is drawing the game
+        this(boardSize, handSize, Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    }
+
+    public HintSearch(int boardSize, int handSize, int threads) {
+        solver = new Solver(threads);
+        board = new BitBoard(boardSize);
+        hand = new Shape[handSize];
+
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                searchLoop();
+            }
+        }, "HintSearch");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    //endregion
+
+    //region Public methods
+
+    // Starts searching for the given state, dropping the previous search.
+    // The board is copied, and the hand may have empty (null) slots.
+    public void restart(final BitBoard board, final Shape[] hand) {
+        synchronized (this) {
+            this.board.set(board);
+            System.arraycopy(hand, 0, this.hand, 0, this.hand.length);
+            version++;
+            cancelFlag.set(true);
+            cancelFlag = new AtomicBoolean();
+            notifyAll();
+        }
+    }
+
+    // The best solution found for the last state given to restart(),
+    // or null if none was found yet. This doesn't wait for the search.
+    public synchronized Solution getBest() {
+        return bestVersion == version ? best : null;
+    }
+
+    // Stops searching for good, the thread will end soon after
+    public void shutdown() {
+        synchronized (this) {
+            stopped = true;
+            cancelFlag.set(true);
+            notifyAll();
+        }
+        solver.shutdown();
+    }
+
+    //endregion
+
+    //region Searching
+
+    private void searchLoop() {
+        final BitBoard localBoard = new BitBoard(board.size);
+        final Shape[] localHand = new Shape[hand.length];
+        int searched = 0;
+
+        while (true) {
+            final int current;
+            final AtomicBoolean cancelled;
+            synchronized (this) {
+                // Wait until there is a new state to search for
+                while (version == searched && !stopped) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (stopped)
+                    return;
+
+                localBoard.set(board);
+                System.arraycopy(hand, 0, localHand, 0, hand.length);
+                current = searched = version;
+                cancelled = cancelFlag;
+            }
+
+            final long deadline = System.currentTimeMillis() + BUDGET_MILLIS;
+            for (int width = FIRST_WIDTH; width <= LAST_WIDTH; width *= 2) {
+                final long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0 || cancelled.get())
+                    break;
+
+                solver.setWidth(width);
+                final Solution solution = solver.solve(localBoard, localHand, remaining, cancelled);
+                synchronized (this) {
+                    if (version != current)
+                        break;
+
+                    // A search that ran out of time may not be as good as the previous one
+                    if (solution != null && (bestVersion != current || solution.value >= best.value)) {
+                        best = solution;
+                        bestVersion = current;
+                    }
+                }
+            }
+        }
+    }
+
+    //endregion
+}
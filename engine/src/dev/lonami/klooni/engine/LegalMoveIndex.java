@@ -0,0 +1,102 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+// Keeps track of how many offsets every shape can be put on, updated
+// as the cells of a BitBoard are filled or cleared, so knowing if a
+// shape can be put anywhere (or if it's game over) is a lookup.
+//
+// Every entry of the placements table remembers how many filled cells
+// are blocking it, and it's legal only while there are none.
+final class LegalMoveIndex {
+
+    //region Members
+
+    private final Placements placements;
+
+    // How many filled cells block every (global) entry
+    private final byte[] blockers;
+
+    // How many legal entries every shape has
+    private final int[] legalCount;
+
+    //endregion
+
+    //region Constructor
+
+    LegalMoveIndex(final Placements placements) {
+        this.placements = placements;
+        blockers = new byte[placements.entryCount];
+        legalCount = new int[Shape.ALL.length];
+    }
+
+    //endregion
+
+    //region Package local methods
+
+    // Recalculates everything from the given bits
+    void rebuild(final long[] bits) {
+        final int wordCount = placements.wordCount;
+        for (Shape shape : Shape.ALL) {
+            final long[] masks = placements.masks[shape.id];
+            int entry = placements.firstEntry[shape.id];
+            int legal = 0;
+            for (int offset = 0; offset < masks.length; offset += wordCount, ++entry) {
+                int count = 0;
+                for (int w = 0; w < wordCount; ++w)
+                    count += Long.bitCount(bits[w] & masks[offset + w]);
+
+                blockers[entry] = (byte) count;
+                if (count == 0)
+                    legal++;
+            }
+            legalCount[shape.id] = legal;
+        }
+    }
+
+    void set(final LegalMoveIndex other) {
+        System.arraycopy(other.blockers, 0, blockers, 0, blockers.length);
+        System.arraycopy(other.legalCount, 0, legalCount, 0, legalCount.length);
+    }
+
+    // Must be called once for every cell index that goes from empty to filled
+    void filled(int index) {
+        final int[] entries = placements.coveredBy[index];
+        for (int i = entries.length; i-- != 0; ) {
+            final int entry = entries[i];
+            if (blockers[entry]++ == 0)
+                legalCount[placements.shapeOfEntry[entry]]--;
+        }
+    }
+
+    // Must be called once for every cell index that goes from filled to empty
+    void cleared(int index) {
+        final int[] entries = placements.coveredBy[index];
+        for (int i = entries.length; i-- != 0; ) {
+            final int entry = entries[i];
+            if (--blockers[entry] == 0)
+                legalCount[placements.shapeOfEntry[entry]]++;
+        }
+    }
+
+    int count(final Shape shape) {
+        return legalCount[shape.id];
+    }
+
+    //endregion
+}
@@ -0,0 +1,288 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+// Append-only log of the moves made since the last snapshot of a game, so
+// the game survives being killed at any point without saving it whole after
+// every move. Every move takes a few bytes, written as soon as it's made.
+//
+// Every snapshot has a sequence number, and moves are appended to the journal
+// started for the last one. Journals alternate between two files, so the
+// journal of the previous snapshot is still there until the next snapshot
+// was written. The file of a new journal is only written once open() is
+// called, which the caller must not do before its snapshot was written (since
+// it overwrites the journal two sequences back). Moves can only be appended
+// once it's open, so none of them is ever kept only in memory. Whoever makes
+// a move right after a snapshot has to wait for it to be written then, but
+// that is rarely the case since snapshots are only a few kilobytes.
+//
+// The journal can be opened from another thread than the one appending to it.
+//
+// Loading the game is reading the last snapshot and replaying the journal
+// for its sequence and the one after it (if it was started), in order.
+public class MoveJournal {
+
+    //region Members
+
+    private static final int MAGIC = 0x6B6A726E; // "kjrn"
+
+    // Types of record
+    private static final int PUT = 1;
+    private static final int UNDO = 2;
+    private static final int REDO = 3;
+
+    private final File[] files;
+
+    // Appending to the journal of this sequence, whose file is null until it's opened
+    private FileOutputStream out;
+    private boolean started;
+    private long sequence;
+    private int recordCount;
+
+    // Records are built here first so every one is written at once
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private final DataOutputStream record = new DataOutputStream(buffer);
+
+    //endregion
+
+    //region Constructor
+
+    // The two files are named as the given one with 0 and 1 appended
+    public MoveJournal(final File file) {
+        files = new File[]{
+                new File(file.getPath() + "0"),
+                new File(file.getPath() + "1")
+        };
+    }
+
+    //endregion
+
+    //region Sub-classes
+
+    // Receives the moves found in the journal while replaying it,
+    // which should throw if the move can't be made on the game
+    public interface Player {
+        // The hand is the one taken after the move if it finished its hand, or null
+        void put(int slot, int x, int y, Shape[] hand) throws IOException;
+
+        void undo() throws IOException;
+
+        void redo() throws IOException;
+    }
+
+    //endregion
+
+    //region Private methods
+
+    private File fileFor(long sequence) {
+        return files[(int) (sequence & 1)];
+    }
+
+    private void append() throws IOException {
+        record.flush();
+        try {
+            if (out == null)
+                throw new IOException("The journal was not opened.");
+
+            // A single write so the whole record gets written even if we're killed right after
+            out.write(buffer.toByteArray());
+        } finally {
+            buffer.reset();
+        }
+        recordCount++;
+    }
+
+    // Replays a single journal, returning false if it wasn't there or
+    // it ended with a torn record (in which case nothing came after it)
+    private boolean replay(final File file, long sequence, final Player player) throws IOException {
+        if (!file.exists())
+            return false;
+
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != MAGIC || in.readLong() != sequence)
+                return false;
+
+            while (true) {
+                final int type = in.read();
+                if (type == -1)
+                    return true;
+
+                switch (type) {
+                    case PUT:
+                        final int slot = in.readUnsignedByte();
+                        final int x = in.readUnsignedByte();
+                        final int y = in.readUnsignedByte();
+                        final int handSize = in.readUnsignedByte();
+                        Shape[] hand = null;
+                        if (handSize != 0) {
+                            hand = new Shape[handSize];
+                            for (int i = 0; i < handSize; ++i) {
+                                try {
+                                    hand[i] = Shape.unpack(in.readUnsignedByte());
+                                } catch (IllegalArgumentException e) {
+                                    throw new IOException("Invalid shape found on the journal.");
+                                }
+                            }
+                        }
+                        player.put(slot, x, y, hand);
+                        break;
+                    case UNDO:
+                        player.undo();
+                        break;
+                    case REDO:
+                        player.redo();
+                        break;
+                    default:
+                        throw new IOException("Invalid record found on the journal.");
+                }
+            }
+        } catch (EOFException ignored) {
+            // The header or the last record was only partially written, so it never
+            // happened, and the game was killed before any journal after this one
+            return false;
+        } finally {
+            in.close();
+        }
+    }
+
+    //endregion
+
+    //region Public methods
+
+    // Starts appending to a new journal for the snapshot with the given sequence,
+    // returning the file of the previous journal, which can be deleted once the
+    // snapshot has been written. Nothing can be appended until the journal is opened.
+    public synchronized File start(long sequence) {
+        close();
+        this.sequence = sequence;
+        recordCount = 0;
+        started = true;
+        return fileFor(sequence + 1);
+    }
+
+    // Creates the file of the journal started for the given sequence, so records
+    // can be appended to it. If another journal was started (or it was closed)
+    // since, the file is left alone. If it can't be written, the journal is closed.
+    public synchronized void open(long sequence) throws IOException {
+        if (!started || out != null || this.sequence != sequence)
+            return;
+
+        try {
+            out = new FileOutputStream(fileFor(sequence));
+            final DataOutputStream header = new DataOutputStream(out);
+            header.writeInt(MAGIC);
+            header.writeLong(sequence);
+            header.flush();
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public synchronized boolean isStarted() {
+        return started;
+    }
+
+    // Whether moves can be appended, which is only once the journal started last was opened
+    public synchronized boolean isOpen() {
+        return out != null;
+    }
+
+    public synchronized long getSequence() {
+        return sequence;
+    }
+
+    // The file of the journal started last
+    public synchronized File getFile() {
+        return fileFor(sequence);
+    }
+
+    // How many records were appended since the journal was started
+    public synchronized int getRecordCount() {
+        return recordCount;
+    }
+
+    // Appends a move which put the shape on the given slot at (x, y), and the
+    // hand taken after it if the move finished its hand (or null otherwise)
+    public synchronized void appendPut(int slot, int x, int y, final Shape[] hand) throws IOException {
+        record.writeByte(PUT);
+        record.writeByte(slot);
+        record.writeByte(x);
+        record.writeByte(y);
+        if (hand == null) {
+            record.writeByte(0);
+        } else {
+            record.writeByte(hand.length);
+            for (Shape shape : hand)
+                record.writeByte(shape.pack());
+        }
+        append();
+    }
+
+    public synchronized void appendUndo() throws IOException {
+        record.writeByte(UNDO);
+        append();
+    }
+
+    public synchronized void appendRedo() throws IOException {
+        record.writeByte(REDO);
+        append();
+    }
+
+    // Replays the moves made since the snapshot with the given sequence, returning
+    // the sequence of the last journal found (which may be the one after it)
+    public long replay(long sequence, final Player player) throws IOException {
+        if (replay(fileFor(sequence), sequence, player)
+                && replay(fileFor(sequence + 1), sequence + 1, player))
+            return sequence + 1;
+
+        return sequence;
+    }
+
+    public synchronized void close() {
+        started = false;
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException ignored) {
+            }
+            out = null;
+        }
+    }
+
+    // Closes the journal and deletes both files, since the game is gone
+    public synchronized void delete() {
+        close();
+        for (File file : files)
+            if (file.exists())
+                file.delete();
+    }
+
+    //endregion
+}
@@ -0,0 +1,218 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+// Table with the mask every shape occupies at every offset where it
+// fits inside a board of a given size, so finding out where a shape
+// can go is a scan over the table with an AND per word and entry.
+//
+// The entries of a shape are sorted by rows and then columns, so
+// the entry for the offset (x, y) is y * (size - cols + 1) + x.
+public final class Placements {
+
+    //region Members
+
+    public final int size;
+    public final int wordCount;
+
+    // For every shape id, its masks one after another (wordCount longs per entry)
+    final long[][] masks;
+
+    // For every shape id, how many offsets fit per row
+    private final int[] perRow;
+
+    // Masks with all the bits of the given row or column set
+    final long[][] rowMasks;
+    final long[][] colMasks;
+
+    // Row and column of every bit index, to avoid divisions
+    final byte[] rowOf;
+    final byte[] colOf;
+
+    // Every (shape, entry) pair also has a global index, the entries
+    // of every shape starting at firstEntry[shape.id]
+    final int[] firstEntry;
+    final int entryCount;
+    final byte[] shapeOfEntry;
+
+    // For every bit index, the global index of all the entries covering it
+    final int[][] coveredBy;
+
+    // For every bit index, its key to hash the board
+    final long[] cellKeys;
+
+    //endregion
+
+    //region Static members
+
+    // The size of the board the game is played on, which is built on class load
+    public static final int DEFAULT_SIZE = 10;
+
+    private static Placements[] cache = new Placements[DEFAULT_SIZE + 1];
+
+    static {
+        cache[DEFAULT_SIZE] = new Placements(DEFAULT_SIZE);
+    }
+
+    //endregion
+
+    //region Constructor
+
+    private Placements(int size) {
+        this.size = size;
+        wordCount = (size * size + 63) >>> 6;
+
+        rowMasks = new long[size][wordCount];
+        colMasks = new long[size][wordCount];
+        rowOf = new byte[size * size];
+        colOf = new byte[size * size];
+        for (int i = 0; i < size; ++i) {
+            for (int j = 0; j < size; ++j) {
+                final int index = i * size + j;
+                rowMasks[i][index >>> 6] |= 1L << index;
+                colMasks[j][index >>> 6] |= 1L << index;
+                rowOf[index] = (byte) i;
+                colOf[index] = (byte) j;
+            }
+        }
+
+        masks = new long[Shape.ALL.length][];
+        perRow = new int[Shape.ALL.length];
+        firstEntry = new int[Shape.ALL.length];
+        int total = 0;
+        for (Shape shape : Shape.ALL) {
+            firstEntry[shape.id] = total;
+            if (shape.cols > size || shape.rows > size) {
+                // Doesn't fit anywhere
+                masks[shape.id] = new long[0];
+                continue;
+            }
+
+            final int cols = size - shape.cols + 1;
+            final int rows = size - shape.rows + 1;
+            perRow[shape.id] = cols;
+            masks[shape.id] = new long[rows * cols * wordCount];
+            for (int y = 0; y < rows; ++y)
+                for (int x = 0; x < cols; ++x)
+                    shapeMask(shape, x, y, masks[shape.id], (y * cols + x) * wordCount);
+
+            total += rows * cols;
+        }
+
+        entryCount = total;
+        shapeOfEntry = new byte[entryCount];
+        for (Shape shape : Shape.ALL)
+            for (int e = count(shape); e-- != 0; )
+                shapeOfEntry[firstEntry[shape.id] + e] = (byte) shape.id;
+
+        coveredBy = calculateCoveredBy();
+        cellKeys = Zobrist.keys(size * size, size);
+    }
+
+    private int[][] calculateCoveredBy() {
+        final int[][] result = new int[size * size][];
+        final int[] counts = new int[size * size];
+
+        // First count how many entries cover every cell...
+        for (int entry = 0; entry < entryCount; ++entry) {
+            final long[] shapeMasks = masks[shapeOfEntry[entry]];
+            final int offset = (entry - firstEntry[shapeOfEntry[entry]]) * wordCount;
+            for (int w = 0; w < wordCount; ++w)
+                for (long m = shapeMasks[offset + w]; m != 0; m &= m - 1)
+                    counts[(w << 6) + Long.numberOfTrailingZeros(m)]++;
+        }
+
+        for (int i = 0; i < result.length; ++i) {
+            result[i] = new int[counts[i]];
+            counts[i] = 0;
+        }
+
+        // ...and then fill them in
+        for (int entry = 0; entry < entryCount; ++entry) {
+            final long[] shapeMasks = masks[shapeOfEntry[entry]];
+            final int offset = (entry - firstEntry[shapeOfEntry[entry]]) * wordCount;
+            for (int w = 0; w < wordCount; ++w) {
+                for (long m = shapeMasks[offset + w]; m != 0; m &= m - 1) {
+                    final int index = (w << 6) + Long.numberOfTrailingZeros(m);
+                    result[index][counts[index]++] = entry;
+                }
+            }
+        }
+        return result;
+    }
+
+    // Sets the bits a shape would occupy at (x, y), starting at the given offset
+    private void shapeMask(Shape shape, int x, int y, long[] mask, int offset) {
+        for (int i = 0; i < shape.rows; ++i) {
+            final long row = shape.rowBits[i] & 0xFFFFFFFFL;
+            final int index = (y + i) * size + x;
+            final int word = offset + (index >>> 6);
+            final int shift = index & 63;
+
+            mask[word] |= row << shift;
+            // The row may be split between this word and the next one
+            if (shift != 0 && (index >>> 6) + 1 < wordCount)
+                mask[word + 1] |= row >>> (64 - shift);
+        }
+    }
+
+    //endregion
+
+    //region Static methods
+
+    // Returns the table for the given board size, building it the first time
+    public static synchronized Placements forSize(int size) {
+        if (size >= cache.length) {
+            Placements[] grown = new Placements[size + 1];
+            System.arraycopy(cache, 0, grown, 0, cache.length);
+            cache = grown;
+        }
+        if (cache[size] == null)
+            cache[size] = new Placements(size);
+
+        return cache[size];
+    }
+
+    //endregion
+
+    //region Public methods
+
+    // How many offsets the shape has where it is inside the board
+    public int count(Shape shape) {
+        return masks[shape.id].length / wordCount;
+    }
+
+    public int entry(Shape shape, int x, int y) {
+        return y * perRow[shape.id] + x;
+    }
+
+    public int getX(Shape shape, int entry) {
+        return entry % perRow[shape.id];
+    }
+
+    public int getY(Shape shape, int entry) {
+        return entry / perRow[shape.id];
+    }
+
+    // Copies the mask of the given entry into the given mask
+    public void getMask(Shape shape, int entry, long[] mask) {
+        System.arraycopy(masks[shape.id], entry * wordCount, mask, 0, wordCount);
+    }
+
+    //endregion
+}
@@ -0,0 +1,225 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+// Reads a replay written by ReplayWriter one move at a time, straight from
+// the stream it's on, so replays of any length can be played back without
+// loading them whole. Moves can be played on a GameState as fast as they're
+// read (see play()), or by anything else following the same rules.
+public class ReplayReader {
+
+    //region Members
+
+    // Types of record, as returned by next()
+    public static final int END = -1;
+    public static final int PUT = 0;
+    public static final int UNDO = 1;
+    public static final int REDO = 2;
+
+    private final InputStream in;
+
+    // Bytes read from the stream but not yet used
+    private final byte[] buffer = new byte[8192];
+    private int offset;
+    private int limit;
+
+    // How many bytes the header and every record read so far take
+    private long length;
+
+    private final int gameMode;
+    private final int boardSize;
+    private final int handSize;
+    private final long seed;
+
+    // The last put read
+    private int slot;
+    private int x;
+    private int y;
+
+    //endregion
+
+    //region Constructor
+
+    // Reads the header of the replay, throwing if the stream doesn't have one
+    public ReplayReader(final InputStream in) throws IOException {
+        this.in = in;
+        if (!fill(ReplayWriter.HEADER_SIZE) || readInt() != ReplayWriter.MAGIC)
+            throw new IOException("Not a replay.");
+
+        final int version = buffer[offset++] & 0xFF;
+        if (version > ReplayWriter.VERSION)
+            throw new IOException("The replay is of a newer version (" + version + ").");
+
+        gameMode = buffer[offset++] & 0xFF;
+        boardSize = buffer[offset++] & 0xFF;
+        handSize = buffer[offset++] & 0xFF;
+        seed = (long) readInt() << 32 | readInt() & 0xFFFFFFFFL;
+        if (boardSize < 1 || handSize < 1 || handSize > ReplayWriter.MAX_HAND_SIZE)
+            throw new IOException("Invalid rules found on the replay.");
+
+        length = ReplayWriter.HEADER_SIZE;
+    }
+
+    //endregion
+
+    //region Private methods
+
+    // Makes sure the buffer has at least the given amount of bytes
+    // left, returning false if the stream ended before having them
+    private boolean fill(int count) throws IOException {
+        if (limit - offset >= count)
+            return true;
+
+        System.arraycopy(buffer, offset, buffer, 0, limit - offset);
+        limit -= offset;
+        offset = 0;
+        while (limit < count) {
+            final int read = in.read(buffer, limit, buffer.length - limit);
+            if (read == -1)
+                return false;
+
+            limit += read;
+        }
+        return true;
+    }
+
+    private int readInt() {
+        final int result = (buffer[offset] & 0xFF) << 24 | (buffer[offset + 1] & 0xFF) << 16
+                | (buffer[offset + 2] & 0xFF) << 8 | buffer[offset + 3] & 0xFF;
+
+        offset += 4;
+        return result;
+    }
+
+    //endregion
+
+    //region Public methods
+
+    public int getGameMode() {
+        return gameMode;
+    }
+
+    public int getBoardSize() {
+        return boardSize;
+    }
+
+    public int getHandSize() {
+        return handSize;
+    }
+
+    // The seed of the SplitMixRandom every piece of the game comes from
+    public long getSeed() {
+        return seed;
+    }
+
+    // How many bytes the replay takes up to the last record read,
+    // so anything past it (such as a partial record) can be dropped
+    public long getLength() {
+        return length;
+    }
+
+    // Reads the next record, returning its type (or END if there are no more).
+    // If it's a put, its slot and coordinates are available until the next one.
+    public int next() throws IOException {
+        if (!fill(1))
+            return END;
+
+        final int type = (buffer[offset] & 0xFF) >>> 6;
+        switch (type) {
+            case PUT:
+                // The last record was only partially written, so it never happened
+                if (!fill(3))
+                    return END;
+
+                slot = buffer[offset] & 0x3F;
+                x = buffer[offset + 1] & 0xFF;
+                y = buffer[offset + 2] & 0xFF;
+                offset += 3;
+                length += 3;
+                break;
+            case UNDO:
+            case REDO:
+                offset++;
+                length++;
+                break;
+            default:
+                throw new IOException("Invalid record found on the replay.");
+        }
+        return type;
+    }
+
+    public int getSlot() {
+        return slot;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    // Creates the game as it was when the replay started, which can undo
+    // and redo moves since the replay may have any number of them
+    public GameState newGame() {
+        return new GameState(boardSize, handSize, new SplitMixRandom(seed), true);
+    }
+
+    // Plays the record that was just read on the game (created with newGame()),
+    // throwing if it can't be made, since then the replay is of a different game
+    public void play(final GameState game, int type) throws IOException {
+        final boolean valid;
+        switch (type) {
+            case PUT:
+                valid = slot < game.getHandSize() && game.put(slot, x, y) >= 0;
+                break;
+            case UNDO:
+                valid = game.undo();
+                break;
+            case REDO:
+                valid = game.redo();
+                break;
+            default:
+                valid = false;
+                break;
+        }
+        if (!valid)
+            throw new IOException("Invalid move found on the replay.");
+    }
+
+    // Plays every record left on the game, returning how many there were
+    public long playAll(final GameState game) throws IOException {
+        long played = 0;
+        int type;
+        while ((type = next()) != END) {
+            play(game, type);
+            played++;
+        }
+        return played;
+    }
+
+    public void close() throws IOException {
+        in.close();
+    }
+
+    //endregion
+}
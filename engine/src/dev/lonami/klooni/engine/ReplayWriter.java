@@ -0,0 +1,125 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+
+// Records a whole game as a replay, which can be played back later (see ReplayReader).
+//
+// The pieces of a game all come from a SplitMixRandom, so a replay is only the
+// seed it started with and every move made, in order: where the shape of every
+// slot was put, and every undo and redo. New hands are taken from the seed
+// when playing it back, so a put takes 3 bytes and an undo or redo a single one.
+//
+// Every record is written at once, so a replay written straight to a file is
+// complete up to the last move even if the game is killed (but for the record
+// being written at the time, which ReplayReader ignores).
+public class ReplayWriter {
+
+    //region Members
+
+    static final int MAGIC = 0x6B72706C; // "krpl"
+    static final int VERSION = 1;
+
+    // magic, version, gameMode, boardSize, handSize, seed
+    static final int HEADER_SIZE = 16;
+
+    // The slot is saved on the same byte as the type of record
+    static final int MAX_HAND_SIZE = 64;
+
+    private final OutputStream out;
+    private final byte[] record = new byte[3];
+
+    //endregion
+
+    //region Constructor
+
+    public ReplayWriter(final OutputStream out) {
+        this.out = out;
+    }
+
+    //endregion
+
+    //region Static methods
+
+    // Opens the replay saved on the given file to keep appending to it, dropping
+    // anything past the given length (such as a record only partially written)
+    public static ReplayWriter resume(final File file, long length) throws IOException {
+        final RandomAccessFile truncate = new RandomAccessFile(file, "rw");
+        try {
+            truncate.setLength(length);
+        } finally {
+            truncate.close();
+        }
+        return new ReplayWriter(new FileOutputStream(file, true));
+    }
+
+    //endregion
+
+    //region Public methods
+
+    // Starts the replay of a game whose pieces come from a SplitMixRandom with the
+    // given seed (before taking the first hand), under the given rules. The game
+    // mode is only kept for whoever plays it back, it doesn't change the moves.
+    public void start(int gameMode, int boardSize, int handSize, long seed) throws IOException {
+        if (boardSize < 1 || boardSize > 255 || handSize < 1 || handSize > MAX_HAND_SIZE)
+            throw new IllegalArgumentException("Cannot record games of this size.");
+
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream(HEADER_SIZE);
+        final DataOutputStream header = new DataOutputStream(buffer);
+        header.writeInt(MAGIC);
+        header.writeByte(VERSION);
+        header.writeByte(gameMode);
+        header.writeByte(boardSize);
+        header.writeByte(handSize);
+        header.writeLong(seed);
+        out.write(buffer.toByteArray());
+    }
+
+    // Appends a move which put the shape on the given slot at (x, y)
+    public void appendPut(int slot, int x, int y) throws IOException {
+        record[0] = (byte) (ReplayReader.PUT << 6 | slot);
+        record[1] = (byte) x;
+        record[2] = (byte) y;
+        out.write(record, 0, 3);
+    }
+
+    public void appendUndo() throws IOException {
+        out.write(ReplayReader.UNDO << 6);
+    }
+
+    public void appendRedo() throws IOException {
+        out.write(ReplayReader.REDO << 6);
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    public void close() throws IOException {
+        out.close();
+    }
+
+    //endregion
+}
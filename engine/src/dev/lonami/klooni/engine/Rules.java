@@ -0,0 +1,45 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+// The rules of the game which don't depend on any particular state
+public final class Rules {
+
+    private Rules() {
+    }
+
+    // The original game seems to work as follows:
+    // If < 1 were cleared, score = 0
+    // If = 1  was cleared, score = cells cleared
+    // If > 1 were cleared, score = cells cleared + score(cleared - 1)
+    public static int calculateClearScore(int stripsCleared, int boardSize) {
+        if (stripsCleared < 1) return 0;
+        if (stripsCleared == 1) return boardSize;
+        else return boardSize * stripsCleared + calculateClearScore(stripsCleared - 1, boardSize);
+    }
+
+    // If no shape in the hand can be put, then it is considered to be game over.
+    // Empty (null) slots in the hand are ignored.
+    public static boolean isGameOver(final BitBoard board, final Shape[] hand) {
+        for (Shape shape : hand)
+            if (shape != null && board.canPutAnywhere(shape))
+                return false;
+
+        return true;
+    }
+}
@@ -0,0 +1,262 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+import java.util.Random;
+
+// The shape of a piece, which can be either rectangles
+// (squares too) or L shaped with any rotation.
+//
+// The color index of a shape is also the kind of shape it
+// is, so the same shapes are always drawn with the same color.
+//
+// Shapes are immutable, and there is only one instance for every
+// kind and rotation (see ALL), so they can be compared by reference.
+public class Shape {
+
+    //region Members
+
+    public final int colorIndex;
+    public final int rotation;
+
+    // Unique index of this shape inside ALL
+    public final int id;
+
+    public final int cols, rows;
+    private final boolean[][] filled;
+
+    // The filled columns of every row as bits, used to build the placement masks
+    final int[] rowBits;
+
+    public final int area;
+
+    // Average column and row of the filled cells
+    public final float gravityX, gravityY;
+
+    //endregion
+
+    //region Static members
+
+    // 9 shapes [0…8]
+    public static final int COUNT = 9;
+
+    // Every different shape, that is, every kind with all its distinct rotations
+    public static final Shape[] ALL;
+
+    // Index into ALL where the rotations of every kind start
+    private static final int[] FIRST_ID = new int[COUNT];
+
+    // How many distinct rotations every kind has
+    private static final int[] ROTATIONS = {1, 1, 1, 2, 2, 2, 2, 4, 4};
+
+    // How many rotations random() picks from
+    private static final int RANDOM_ROTATIONS = 5;
+
+    static {
+        int total = 0;
+        for (int i = 0; i < COUNT; ++i) {
+            FIRST_ID[i] = total;
+            total += ROTATIONS[i];
+        }
+
+        ALL = new Shape[total];
+        for (int i = 0; i < COUNT; ++i)
+            for (int r = 0; r < ROTATIONS[i]; ++r)
+                ALL[FIRST_ID[i] + r] = create(i, r, FIRST_ID[i] + r);
+    }
+
+    //endregion
+
+    //region Constructors
+
+    // Rectangle-shaped constructor
+    //
+    // If rotateSizeBy is odd, the rows and columns will be swapped.
+    private Shape(int cols, int rows, int rotateSizeBy, int colorIndex, int id) {
+        this.colorIndex = colorIndex;
+        this.id = id;
+
+        rotation = rotateSizeBy % 2;
+        this.cols = rotation == 1 ? rows : cols;
+        this.rows = rotation == 1 ? cols : rows;
+
+        filled = new boolean[this.rows][this.cols];
+        for (int i = 0; i < this.rows; ++i) {
+            for (int j = 0; j < this.cols; ++j) {
+                filled[i][j] = true;
+            }
+        }
+
+        rowBits = calculateRowBits();
+        area = calculateArea();
+        gravityX = calculateGravity(true);
+        gravityY = calculateGravity(false);
+    }
+
+    // L-shaped constructor
+    private Shape(int lSize, int rotateCount, int colorIndex, int id) {
+        this.colorIndex = colorIndex;
+        this.id = id;
+
+        cols = rows = lSize;
+        filled = new boolean[lSize][lSize];
+
+        rotation = rotateCount % 4;
+        switch (rotation) {
+            case 0: // ┌
+                for (int j = 0; j < lSize; ++j)
+                    filled[0][j] = true;
+                for (int i = 0; i < lSize; ++i)
+                    filled[i][0] = true;
+                break;
+            case 1: // ┐
+                for (int j = 0; j < lSize; ++j)
+                    filled[0][j] = true;
+                for (int i = 0; i < lSize; ++i)
+                    filled[i][lSize - 1] = true;
+                break;
+            case 2: // ┘
+                for (int j = 0; j < lSize; ++j)
+                    filled[lSize - 1][j] = true;
+                for (int i = 0; i < lSize; ++i)
+                    filled[i][lSize - 1] = true;
+                break;
+            case 3: // └
+                for (int j = 0; j < lSize; ++j)
+                    filled[lSize - 1][j] = true;
+                for (int i = 0; i < lSize; ++i)
+                    filled[i][0] = true;
+                break;
+        }
+
+        rowBits = calculateRowBits();
+        area = calculateArea();
+        gravityX = calculateGravity(true);
+        gravityY = calculateGravity(false);
+    }
+
+    private int[] calculateRowBits() {
+        final int[] result = new int[rows];
+        for (int i = 0; i < rows; ++i)
+            for (int j = 0; j < cols; ++j)
+                if (filled[i][j])
+                    result[i] |= 1 << j;
+
+        return result;
+    }
+
+    private int calculateArea() {
+        int result = 0;
+        for (int i = 0; i < rows; ++i)
+            result += Integer.bitCount(rowBits[i]);
+
+        return result;
+    }
+
+    private float calculateGravity(boolean columns) {
+        int sum = 0;
+        for (int i = 0; i < rows; ++i)
+            for (int j = 0; j < cols; ++j)
+                if (filled[i][j])
+                    sum += columns ? j : i;
+
+        return sum / (float) area;
+    }
+
+    //endregion
+
+    //region Static methods
+
+    // Generates a random shape
+    public static Shape random(final Random random) {
+        // 9 shapes [0…8]; 4 possible rotations [0…3]
+        // (the rotation is picked from [0…4] so it behaves as it always has)
+        return fromIndex(random.nextInt(COUNT), random.nextInt(RANDOM_ROTATIONS));
+    }
+
+    // How likely it is for random() to generate the given shape.
+    // Not all rotations are equally likely, since there are 5 to pick from.
+    public static float probability(final Shape shape) {
+        int count = 0;
+        for (int r = 0; r < RANDOM_ROTATIONS; ++r)
+            if (r % ROTATIONS[shape.colorIndex] == shape.rotation)
+                count++;
+
+        return count / (float) (RANDOM_ROTATIONS * COUNT);
+    }
+
+    // Any rotation count is the same as its remainder (rotating 4 times leaves it as it was)
+    public static Shape fromIndex(int colorIndex, int rotateCount) {
+        if (colorIndex < 0 || colorIndex >= COUNT)
+            throw new IllegalArgumentException("Unknown shape index " + colorIndex);
+        if (rotateCount < 0)
+            throw new IllegalArgumentException("Invalid rotation " + rotateCount);
+
+        return ALL[FIRST_ID[colorIndex] + rotateCount % ROTATIONS[colorIndex]];
+    }
+
+    // The inverse of pack()
+    public static Shape unpack(int packed) {
+        return fromIndex(packed >>> 4, packed & 0xF);
+    }
+
+    private static Shape create(int colorIndex, int rotateCount, int id) {
+        switch (colorIndex) {
+            // Squares
+            case 0:
+                return new Shape(1, 1, 0, colorIndex, id);
+            case 1:
+                return new Shape(2, 2, 0, colorIndex, id);
+            case 2:
+                return new Shape(3, 3, 0, colorIndex, id);
+
+            // Lines
+            case 3:
+                return new Shape(1, 2, rotateCount, colorIndex, id);
+            case 4:
+                return new Shape(1, 3, rotateCount, colorIndex, id);
+            case 5:
+                return new Shape(1, 4, rotateCount, colorIndex, id);
+            case 6:
+                return new Shape(1, 5, rotateCount, colorIndex, id);
+
+            // L's
+            case 7:
+                return new Shape(2, rotateCount, colorIndex, id);
+            case 8:
+                return new Shape(3, rotateCount, colorIndex, id);
+        }
+        throw new IllegalArgumentException("Unknown shape index " + colorIndex);
+    }
+
+    //endregion
+
+    //region Public methods
+
+    // Both the kind and the rotation in a single byte, to save it
+    public int pack() {
+        return colorIndex << 4 | rotation;
+    }
+
+    // Determines whether the shape is filled on the given row and column
+    public boolean filled(int i, int j) {
+        return filled[i][j];
+    }
+
+    //endregion
+}
@@ -0,0 +1,55 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+// The moves a Solver found for a hand, in the order they should be made.
+// Every move puts the shape on the given slot of the hand at (x, y).
+//
+// Not all the shapes of the hand may be there if some of them can't be put.
+public final class Solution {
+
+    //region Members
+
+    public final int[] slots;
+    public final int[] xs;
+    public final int[] ys;
+
+    // How good the Solver thinks the board will be after these moves
+    public final float value;
+
+    //endregion
+
+    //region Constructor
+
+    Solution(int[] slots, int[] xs, int[] ys, float value) {
+        this.slots = slots;
+        this.xs = xs;
+        this.ys = ys;
+        this.value = value;
+    }
+
+    //endregion
+
+    //region Public methods
+
+    public int getMoveCount() {
+        return slots.length;
+    }
+
+    //endregion
+}
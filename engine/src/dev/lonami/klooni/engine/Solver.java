@@ -0,0 +1,607 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Finds the best order and places to put all the shapes of a hand.
+//
+// Every possible first move is tried and only the best few of them (as
+// told by evaluate()) are expanded further, and the same happens for the
+// second move and so on (a beam search). The first moves are split among
+// the threads of the solver, each of them going down the tree on its own.
+//
+// This is a beam search and not an exhaustive one, so the best moves may
+// be missed if they only look good after a move that didn't rank well.
+//
+// Optionally, the best plan for every first move can also be scored by
+// looking ahead at a single random shape after the hand: the value of
+// putting it on its best place, averaged over the chance of every shape
+// to show up. This is not an expectation over the whole next hand, which
+// would need every combination of shapes to be searched.
+//
+// The search stops when the time budget runs out or when cancelled,
+// in which case the best solution found until then is returned.
+public class Solver {
+
+    //region Members
+
+    private final ExecutorService executor;
+
+    // How many children of every node are expanded (the best ones).
+    // Both settings may be changed from other threads, and are read once per search.
+    private volatile int width = DEFAULT_WIDTH;
+
+    // Whether the plans are scored looking ahead at the next random shape
+    private volatile boolean lookahead;
+
+    // Remembers the states already reached, shared by all the threads of a search
+    private TranspositionTable table = new TranspositionTable(DEFAULT_TABLE_BITS);
+
+    // The search currently running, so it can be cancelled from other threads
+    private volatile Search current;
+
+    //endregion
+
+    //region Static members
+
+    private static final int DEFAULT_WIDTH = 16;
+
+    // 2^15 buckets, 1MB
+    private static final int DEFAULT_TABLE_BITS = 15;
+
+    // Penalty for every shape that can't be put, much worse than any other value
+    private static final float LOST_SHAPE = -10000f;
+
+    // Every change between an empty cell and a filled one (or the walls) on
+    // a line makes the board harder to fill, since it leaves smaller holes
+    private static final float EDGE_WEIGHT = -0.5f;
+
+    // The biggest shapes are the ones that run out of space first
+    private static final float BIG_SHAPE_BONUS = 6f;
+    private static final Shape[] BIG_SHAPES = {
+            Shape.fromIndex(2, 0), Shape.fromIndex(6, 0), Shape.fromIndex(6, 1)
+    };
+
+    //endregion
+
+    //region Constructors
+
+    public Solver() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public Solver(int threads) {
+        executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                final Thread thread = new Thread(runnable, "Solver");
+                // The solver should never keep the game from exiting
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    //endregion
+
+    //region Public methods
+
+    public void setWidth(int width) {
+        if (width < 1 || width > TranspositionTable.MAX_ORDER + 1)
+            throw new IllegalArgumentException("Invalid width " + width);
+
+        this.width = width;
+    }
+
+    public void setLookahead(boolean lookahead) {
+        this.lookahead = lookahead;
+    }
+
+    // Null to search without one (every state will be expanded as many times as it is reached)
+    public synchronized void setTranspositionTable(final TranspositionTable table) {
+        this.table = table;
+    }
+
+    // Finds the best moves for the given hand (null slots are ignored), spending
+    // at most the given time. Returns null if no shape can be put at all, or if
+    // the search was stopped before any solution was found.
+    //
+    // The board is copied before the search starts, so it can be changed
+    // while solving, but only one search can run at a time.
+    public Solution solve(final BitBoard board, final Shape[] hand, long budgetMillis) {
+        return solve(board, hand, budgetMillis, null);
+    }
+
+    // The same as above, but the search also stops as soon as the given flag is
+    // set, even if it was set before the search started (unlike with cancel()).
+    public synchronized Solution solve(final BitBoard board, final Shape[] hand, long budgetMillis,
+                                       final AtomicBoolean cancelFlag) {
+        final Search search = new Search(new BitBoard(board), hand.clone(),
+                System.nanoTime() + budgetMillis * 1000000L, cancelFlag);
+
+        current = search;
+        try {
+            return search.run();
+        } finally {
+            current = null;
+        }
+    }
+
+    // Stops the current search (if any), which will return as soon as possible
+    public void cancel() {
+        final Search search = current;
+        if (search != null)
+            search.cancelled = true;
+    }
+
+    public void shutdown() {
+        cancel();
+        executor.shutdown();
+    }
+
+    //endregion
+
+    //region Evaluation
+
+    // How good the board is to keep playing on. It doesn't care about the
+    // score, only about how easy it will be to put more shapes on it.
+    static float evaluate(final BitBoard board) {
+        float value = EDGE_WEIGHT * countEdges(board);
+        for (Shape shape : BIG_SHAPES)
+            if (board.canPutAnywhere(shape))
+                value += BIG_SHAPE_BONUS;
+
+        return value;
+    }
+
+    // Counts how many times an empty cell is next to a filled one (or
+    // next to the walls) on every row and column
+    private static int countEdges(final BitBoard board) {
+        final int size = board.size;
+        final int full = (1 << size) - 1;
+
+        int count = 0;
+        int previous = full; // The walls count as filled cells
+        for (int y = 0; y < size; ++y) {
+            final int row = board.getRow(y);
+            // Between this row and the walls at both sides (shifted in)...
+            final int walled = (row << 1) | 1 | (1 << (size + 1));
+            count += Integer.bitCount((walled ^ (walled >>> 1)) & ((full << 1) | 1));
+            // ...and between this row and the one below
+            count += Integer.bitCount(row ^ previous);
+            previous = row;
+        }
+        return count + Integer.bitCount(previous ^ full);
+    }
+
+    // Puts the shape on the parent at the given entry and clears the complete lines,
+    // leaving the result on the child. Returns the score the move would give.
+    static int apply(final BitBoard parent, final BitBoard child,
+                     final Shape shape, int entry, final long[] mask) {
+        child.set(parent);
+        child.put(shape, entry, shape.colorIndex);
+
+        final int x = child.placements.getX(shape, entry);
+        final int y = child.placements.getY(shape, entry);
+        final int cleared = child.completeLines(shape, x, y, mask);
+        if (cleared > 0)
+            child.clear(mask);
+
+        return shape.area + Rules.calculateClearScore(cleared, child.size);
+    }
+
+    //endregion
+
+    //region Search
+
+    // A single call to solve(), shared by all the threads working on it
+    private class Search {
+        final BitBoard board;
+        final Shape[] hand;
+        final long deadline;
+        final int width;
+        final boolean lookahead;
+        final TranspositionTable table;
+        final AtomicBoolean cancelFlag;
+
+        volatile boolean cancelled;
+
+        Search(final BitBoard board, final Shape[] hand, long deadline, final AtomicBoolean cancelFlag) {
+            this.board = board;
+            this.hand = hand;
+            this.deadline = deadline;
+            this.cancelFlag = cancelFlag;
+            width = Solver.this.width;
+            lookahead = Solver.this.lookahead;
+            table = Solver.this.table;
+            if (table != null)
+                table.nextGeneration();
+        }
+
+        boolean stopped() {
+            return cancelled || (cancelFlag != null && cancelFlag.get())
+                    || System.nanoTime() - deadline > 0;
+        }
+
+        Solution run() {
+            // Pick the first moves to try on this thread, then expand them in parallel
+            final Worker root = new Worker(this);
+            root.boards[0].set(board);
+            final int count = root.rank(0, 0, 0);
+            if (count == 0)
+                return null;
+
+            final List<Future<Plan>> futures = new ArrayList<Future<Plan>>(count);
+            for (int i = 0; i < count; ++i) {
+                final int order = i;
+                final int slot = root.beamSlots[0][i];
+                final int entry = root.beamEntries[0][i];
+                futures.add(executor.submit(new Callable<Plan>() {
+                    @Override
+                    public Plan call() {
+                        return new Worker(Search.this).expandFirst(order, slot, entry);
+                    }
+                }));
+            }
+
+            final Plan[] plans = new Plan[count];
+            for (int i = 0; i < count; ++i)
+                plans[i] = get(futures.get(i));
+
+            if (lookahead && !stopped())
+                lookAhead(plans);
+
+            // Ties are won by the first moves that ranked better
+            Plan best = null;
+            for (Plan plan : plans)
+                if (plan != null && (best == null || plan.value > best.value))
+                    best = plan;
+
+            return best == null ? null : best.toSolution();
+        }
+
+        // Scores all the plans again with the expected value of the next shape.
+        // If there is no time to score all of them, they're left as they were.
+        void lookAhead(final Plan[] plans) {
+            final List<Future<Float>> futures = new ArrayList<Future<Float>>(plans.length);
+            for (final Plan plan : plans) {
+                if (plan == null) {
+                    futures.add(null);
+                    continue;
+                }
+                futures.add(executor.submit(new Callable<Float>() {
+                    @Override
+                    public Float call() {
+                        return new Worker(Search.this).expectedValue(plan.board);
+                    }
+                }));
+            }
+
+            final float[] values = new float[plans.length];
+            for (int i = 0; i < plans.length; ++i) {
+                if (futures.get(i) != null) {
+                    final Float value = get(futures.get(i));
+                    values[i] = value == null ? 0f : value;
+                }
+            }
+
+            if (stopped())
+                return;
+
+            for (int i = 0; i < plans.length; ++i)
+                if (plans[i] != null)
+                    plans[i].value = plans[i].score + plans[i].lostValue + values[i];
+        }
+
+        <T> T get(final Future<T> future) {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                cancelled = true;
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Solver failed", e.getCause());
+            }
+        }
+    }
+
+    // The best sequence of moves found from a first move
+    private static class Plan {
+        final BitBoard board;
+        final Shape[] shapes;
+        final int[] slots;
+        final int[] entries;
+        int moveCount;
+
+        // The score the moves give, the penalty of the shapes that weren't put and the total value
+        int score;
+        float lostValue;
+        float value;
+
+        Plan(int boardSize, int handSize) {
+            board = new BitBoard(boardSize);
+            shapes = new Shape[handSize];
+            slots = new int[handSize];
+            entries = new int[handSize];
+        }
+
+        Solution toSolution() {
+            final int[] s = new int[moveCount];
+            final int[] xs = new int[moveCount];
+            final int[] ys = new int[moveCount];
+            for (int i = 0; i < moveCount; ++i) {
+                s[i] = slots[i];
+                xs[i] = board.placements.getX(shapes[i], entries[i]);
+                ys[i] = board.placements.getY(shapes[i], entries[i]);
+            }
+            return new Solution(s, xs, ys, value);
+        }
+    }
+
+    // The scratch state a single thread needs to go down the tree
+    private static class Worker {
+        final Search search;
+        final Shape[] hand;
+
+        // The rank of the first move this worker expands, lower is better
+        int order;
+
+        // The board at every depth, and the moves made to reach it
+        final BitBoard[] boards;
+        final int[] pathSlots;
+        final int[] pathEntries;
+        final long[] mask;
+
+        // The placements found at every depth
+        final int[][] entries;
+
+        // The best children found at every depth, sorted by their value
+        final int[][] beamSlots;
+        final int[][] beamEntries;
+        final int[][] beamScores;
+        final float[][] beamValues;
+
+        Plan best;
+
+        Worker(final Search search) {
+            this.search = search;
+            hand = search.hand;
+
+            final int size = search.board.size;
+            boards = new BitBoard[hand.length + 1];
+            for (int i = 0; i < boards.length; ++i)
+                boards[i] = new BitBoard(size);
+
+            pathSlots = new int[hand.length];
+            pathEntries = new int[hand.length];
+            mask = boards[0].newMask();
+            entries = new int[hand.length][size * size];
+
+            beamSlots = new int[hand.length][search.width];
+            beamEntries = new int[hand.length][search.width];
+            beamScores = new int[hand.length][search.width];
+            beamValues = new float[hand.length][search.width];
+        }
+
+        Plan expandFirst(int order, int slot, int entry) {
+            if (search.stopped())
+                return null;
+
+            this.order = order;
+
+            boards[0].set(search.board);
+            final int score = apply(boards[0], boards[1], hand[slot], entry, mask);
+            pathSlots[0] = slot;
+            pathEntries[0] = entry;
+            expand(1, 1 << slot, score);
+            return best;
+        }
+
+        // Goes down the tree from the board at the given depth, with the given
+        // slots of the hand already used, keeping track of the best plan found
+        void expand(int depth, int used, int score) {
+            if (search.stopped())
+                return;
+
+            if (search.table != null) {
+                // If the same cells are filled with the same shapes left, what comes
+                // next is the same, so only the path with the best score is expanded.
+                // Ties go to the better ranked first move, as they do when picking
+                // the best plan, so the result doesn't depend on the thread timing.
+                final long key = boards[depth].getHash() ^ remainingKey(used);
+                if (search.table.covers(key, score, order))
+                    return;
+
+                search.table.store(key, score, order, remaining(used));
+            }
+
+            if (remaining(used) == 1) {
+                expandLast(depth, used, score);
+                return;
+            }
+
+            final int count = depth == hand.length ? 0 : rank(depth, used, score);
+            if (count == 0) {
+                // Either the hand is finished or no other shape can be put
+                record(depth, score, LOST_SHAPE * remaining(used), boards[depth]);
+                return;
+            }
+
+            for (int i = 0; i < count; ++i) {
+                final int slot = beamSlots[depth][i];
+                final int entry = beamEntries[depth][i];
+                apply(boards[depth], boards[depth + 1], hand[slot], entry, mask);
+                pathSlots[depth] = slot;
+                pathEntries[depth] = entry;
+                expand(depth + 1, used | (1 << slot), beamScores[depth][i]);
+            }
+        }
+
+        // The last shape of the hand doesn't need to be ranked, only the best place for it
+        void expandLast(int depth, int used, int score) {
+            final BitBoard board = boards[depth];
+            final BitBoard child = boards[depth + 1];
+            final int[] found = entries[depth];
+
+            int slot = 0;
+            while (hand[slot] == null || (used & (1 << slot)) != 0)
+                slot++;
+
+            final int count = board.findPlacements(hand[slot], found);
+            if (count == 0) {
+                record(depth, score, LOST_SHAPE, board);
+                return;
+            }
+
+            pathSlots[depth] = slot;
+            for (int k = 0; k < count; ++k) {
+                final int childScore = score + apply(board, child, hand[slot], found[k], mask);
+                pathEntries[depth] = found[k];
+                record(depth + 1, childScore, 0f, child);
+            }
+        }
+
+        // Tries all the moves from the board at the given depth, and keeps the best
+        // of them in the beam for that depth, returning how many there are
+        int rank(int depth, int used, int score) {
+            final BitBoard board = boards[depth];
+            final BitBoard child = boards[depth + 1];
+            final int[] found = entries[depth];
+            final int[] slots = beamSlots[depth];
+            final int[] picked = beamEntries[depth];
+            final int[] scores = beamScores[depth];
+            final float[] values = beamValues[depth];
+            final int width = search.width;
+
+            int kept = 0;
+            for (int slot = 0; slot < hand.length; ++slot) {
+                final Shape shape = hand[slot];
+                if (shape == null || (used & (1 << slot)) != 0 || isRepeated(slot, used))
+                    continue;
+
+                final int count = board.findPlacements(shape, found);
+                for (int k = 0; k < count; ++k) {
+                    final int childScore = score + apply(board, child, shape, found[k], mask);
+                    final float value = childScore + evaluate(child);
+                    if (kept == width && value <= values[width - 1])
+                        continue;
+
+                    // Insert the move sorted, dropping the worst one if there's no room
+                    int i = kept == width ? width - 1 : kept++;
+                    while (i > 0 && values[i - 1] < value) {
+                        slots[i] = slots[i - 1];
+                        picked[i] = picked[i - 1];
+                        scores[i] = scores[i - 1];
+                        values[i] = values[i - 1];
+                        i--;
+                    }
+                    slots[i] = slot;
+                    picked[i] = found[k];
+                    scores[i] = childScore;
+                    values[i] = value;
+                }
+            }
+            return kept;
+        }
+
+        // The same shape on a different slot that wasn't used yet would only
+        // repeat the same moves, so only the first of them is tried
+        boolean isRepeated(int slot, int used) {
+            for (int i = 0; i < slot; ++i)
+                if (hand[i] == hand[slot] && (used & (1 << i)) == 0)
+                    return true;
+
+            return false;
+        }
+
+        int remaining(int used) {
+            int count = 0;
+            for (int slot = 0; slot < hand.length; ++slot)
+                if (hand[slot] != null && (used & (1 << slot)) == 0)
+                    count++;
+
+            return count;
+        }
+
+        long remainingKey(int used) {
+            long key = 0L;
+            for (int slot = 0; slot < hand.length; ++slot)
+                if (hand[slot] != null && (used & (1 << slot)) == 0)
+                    key += Zobrist.shape(hand[slot]);
+
+            return key;
+        }
+
+        // Saves the moves made until the given depth, which led to
+        // the given board, if they're the best plan found so far
+        void record(int depth, int score, float lostValue, final BitBoard board) {
+            final float value = score + lostValue + evaluate(board);
+            if (best != null && value <= best.value)
+                return;
+
+            if (best == null)
+                best = new Plan(search.board.size, hand.length);
+
+            for (int i = 0; i < depth; ++i) {
+                best.shapes[i] = hand[pathSlots[i]];
+                best.slots[i] = pathSlots[i];
+                best.entries[i] = pathEntries[i];
+            }
+            best.moveCount = depth;
+            best.board.set(board);
+            best.score = score;
+            best.lostValue = lostValue;
+            best.value = value;
+        }
+
+        // The value of the board averaged over every shape that could come next,
+        // each put on its best place (or the penalty if it can't be put)
+        float expectedValue(final BitBoard board) {
+            final BitBoard child = boards[1];
+            final int[] found = entries[0];
+
+            float expected = 0f;
+            for (Shape shape : Shape.ALL) {
+                if (search.stopped())
+                    return 0f;
+
+                float bestValue = LOST_SHAPE;
+                final int count = board.findPlacements(shape, found);
+                for (int k = 0; k < count; ++k) {
+                    final float value = apply(board, child, shape, found[k], mask) + evaluate(child);
+                    if (value > bestValue)
+                        bestValue = value;
+                }
+                expected += Shape.probability(shape) * bestValue;
+            }
+            return expected;
+        }
+    }
+
+    //endregion
+}
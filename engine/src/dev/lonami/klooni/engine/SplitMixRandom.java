@@ -0,0 +1,110 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import dev.lonami.klooni.serializer.BinSerializable;
+
+// Fast random number generator (SplitMix64) whose whole state is a single
+// long, so it can be saved with the game and resumed exactly where it was:
+// the same seed always generates the same pieces.
+//
+// Unlike java.util.Random it's not thread-safe, but every thread can have
+// its own, split from another one so their streams are independent.
+public class SplitMixRandom extends Random implements BinSerializable {
+
+    //region Members
+
+    private static final long serialVersionUID = 1L;
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private long state;
+
+    //endregion
+
+    //region Constructor
+
+    public SplitMixRandom(long seed) {
+        // The constructor of Random calls setSeed
+        super(seed);
+    }
+
+    //endregion
+
+    //region Public methods
+
+    @Override
+    public void setSeed(long seed) {
+        state = seed;
+    }
+
+    @Override
+    public long nextLong() {
+        long z = (state += GOLDEN_GAMMA);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    @Override
+    protected int next(int bits) {
+        return (int) (nextLong() >>> (64 - bits));
+    }
+
+    // Random keeps the second value of every pair it generates for the next call,
+    // which would be state outside of the long that is saved. This only returns
+    // the first one, so every value depends on nothing but the state.
+    @Override
+    public double nextGaussian() {
+        // Marsaglia's polar method, as Random does
+        double v1, v2, s;
+        do {
+            v1 = 2 * nextDouble() - 1;
+            v2 = 2 * nextDouble() - 1;
+            s = v1 * v1 + v2 * v2;
+        } while (s >= 1 || s == 0);
+
+        return v1 * StrictMath.sqrt(-2 * StrictMath.log(s) / s);
+    }
+
+    // Returns a new generator, seeded from this one, whose stream is independent of it
+    public SplitMixRandom split() {
+        return new SplitMixRandom(nextLong());
+    }
+
+    //endregion
+
+    //region Serialization
+
+    @Override
+    public void write(DataOutputStream out) throws IOException {
+        out.writeLong(state);
+    }
+
+    @Override
+    public void read(DataInputStream in, int version) throws IOException {
+        state = in.readLong();
+    }
+
+    //endregion
+}
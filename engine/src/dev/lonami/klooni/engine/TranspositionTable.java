@@ -0,0 +1,182 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// A fixed-size table remembering the best score a state of the game was
+// reached with, so a search can skip states it already went through
+// (e.g. the same shapes put in a different order). It can be used by
+// several threads at once without locking.
+//
+// Along with the score, every entry keeps the order of the branch of the
+// search that stored it, so that when several threads reach the same state
+// with the same score, the branch that would win a tie is never skipped,
+// no matter which thread got there first.
+//
+// Every entry is made of two longs, the key XOR the data and the data.
+// If another thread is writing the same entry while reading it, the key
+// won't match and it is treated as a miss (the data is never wrong).
+//
+// The table is split in buckets of two entries. The first one keeps the
+// deepest state (the one with more shapes left, which saves more work),
+// and the second one is always replaced.
+//
+// Entries are only valid for the generation (search) they were stored in.
+public final class TranspositionTable {
+
+    //region Members
+
+    private final AtomicLongArray table;
+    private final int bucketMask;
+
+    private volatile int generation = 1;
+
+    //endregion
+
+    //region Static members
+
+    // Returned by probe() when the state is not on the table
+    public static final int MISS = Integer.MIN_VALUE;
+
+    private static final int LONGS_PER_BUCKET = 4;
+
+    // The scores and orders must fit on the bits they're packed in
+    public static final int MAX_SCORE = (1 << 24) - 1;
+    public static final int MAX_ORDER = (1 << 16) - 1;
+
+    //endregion
+
+    //region Constructor
+
+    // The table will have 2^bits buckets (and twice as many entries)
+    public TranspositionTable(int bits) {
+        if (bits < 0 || bits > 26)
+            throw new IllegalArgumentException("Invalid table size 2^" + bits);
+
+        table = new AtomicLongArray(LONGS_PER_BUCKET << bits);
+        bucketMask = (1 << bits) - 1;
+    }
+
+    //endregion
+
+    //region Private methods
+
+    private static long pack(int score, int order, int depth, int generation) {
+        return (score & 0xFFFFFFL) | ((long) (order & 0xFFFF) << 24)
+                | ((long) (depth & 0xFF) << 40) | ((long) (generation & 0xFFFF) << 48);
+    }
+
+    private static int scoreOf(long data) {
+        return (int) data & 0xFFFFFF;
+    }
+
+    private static int orderOf(long data) {
+        return (int) (data >>> 24) & 0xFFFF;
+    }
+
+    private static int depthOf(long data) {
+        return (int) (data >>> 40) & 0xFF;
+    }
+
+    private static int generationOf(long data) {
+        return (int) (data >>> 48) & 0xFFFF;
+    }
+
+    private int bucket(long key) {
+        // The lowest bits are as random as the rest
+        return ((int) key & bucketMask) * LONGS_PER_BUCKET;
+    }
+
+    // Returns the data stored for the state, or zero (never valid) if it's not on the table
+    private long find(long key) {
+        final int base = bucket(key);
+        final int current = generation;
+        for (int i = base; i < base + LONGS_PER_BUCKET; i += 2) {
+            final long data = table.get(i + 1);
+            if ((table.get(i) ^ data) == key && generationOf(data) == current)
+                return data;
+        }
+        return 0L;
+    }
+
+    private void write(int index, long key, long data) {
+        table.set(index + 1, data);
+        table.set(index, key ^ data);
+    }
+
+    //endregion
+
+    //region Public methods
+
+    // Makes all the entries from previous generations invalid. Must be
+    // called before every new search, since scores are relative to its root.
+    public void nextGeneration() {
+        // Zero is never used so that the empty entries are always invalid
+        final int next = (generation + 1) & 0xFFFF;
+        generation = next == 0 ? 1 : next;
+    }
+
+    // Returns the score the state was stored with, or MISS
+    public int probe(long key) {
+        final long data = find(key);
+        return data == 0L ? MISS : scoreOf(data);
+    }
+
+    // Whether the state was already reached with a better score, or with
+    // the same score by a branch whose order is not after the given one
+    public boolean covers(long key, int score, int order) {
+        final long data = find(key);
+        if (data == 0L)
+            return false;
+
+        final int stored = scoreOf(data);
+        return stored > score || (stored == score && orderOf(data) <= order);
+    }
+
+    // Stores the score a state was reached with by the branch of the given
+    // order, along with the depth (how much work is left from this state)
+    public void store(long key, int score, int order, int depth) {
+        if (score < 0 || score > MAX_SCORE)
+            throw new IllegalArgumentException("Invalid score " + score);
+        if (order < 0 || order > MAX_ORDER)
+            throw new IllegalArgumentException("Invalid order " + order);
+
+        final int base = bucket(key);
+        final int current = generation;
+        final long data = pack(score, order, depth, current);
+
+        // If the state is already on the table, update it
+        for (int i = base; i < base + LONGS_PER_BUCKET; i += 2) {
+            if ((table.get(i) ^ table.get(i + 1)) == key) {
+                write(i, key, data);
+                return;
+            }
+        }
+
+        // Otherwise replace the deepest entry if it's old or not as deep,
+        // or else the entry which is always replaced
+        final long deepest = table.get(base + 1);
+        if (generationOf(deepest) != current || depthOf(deepest) <= depth)
+            write(base, key, data);
+        else
+            write(base + 2, key, data);
+    }
+
+    //endregion
+}
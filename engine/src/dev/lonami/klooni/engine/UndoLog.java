@@ -0,0 +1,330 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import dev.lonami.klooni.serializer.BinSerializable;
+import dev.lonami.klooni.serializer.BinSerializer;
+
+// Remembers what every move of a game changed on a board, so it can be undone
+// and redone in place without keeping a copy of the whole board for every move:
+// which cells the shape filled, which cells were cleared afterwards (and their
+// colors), and whatever the game needs to go back and forth (the slot of the
+// hand, the score before and after, and the new hand if the move finished one).
+//
+// This is a linear history: the boards are not kept, only the entries, and
+// a move recorded after undoing some drops the ones that could be redone.
+// Going back or forward is a fill and a clear of the cells the move changed.
+//
+// Every entry keeps the colors of the cells it could clear and two masks
+// of the board, about 150 bytes per move on a 10x10 board. Saved, an entry
+// takes 14 bytes, plus the cleared cells and the new hand when there are any.
+//
+// The entries are reused once they're cleared or overwritten, so recording
+// moves doesn't allocate anything once the log has grown big enough.
+public class UndoLog implements BinSerializable {
+
+    //region Members
+
+    private final BitBoard board;
+
+    private Entry[] entries;
+
+    // How many moves were recorded, and how many of those are on the board
+    // (the rest were undone and can be redone until a new move is recorded)
+    private int count;
+    private int position;
+
+    // Whether the last move can still record the lines it cleared
+    private boolean open;
+
+    //endregion
+
+    //region Constructor
+
+    public UndoLog(final BitBoard board) {
+        this.board = board;
+        entries = new Entry[16];
+    }
+
+    //endregion
+
+    //region Private methods
+
+    private static final class Entry {
+        Shape shape;
+        int x, y, slot;
+        int score, scoreAfter;
+
+        final long[] placed;
+        final long[] cleared;
+        final byte[] clearedColors;
+        int clearedCount;
+
+        // The hand taken after this move, if it was the last one of its hand
+        Shape[] refill;
+        boolean refilled;
+
+        Entry(final BitBoard board) {
+            placed = board.newMask();
+            cleared = board.newMask();
+            clearedColors = new byte[board.size * board.size];
+        }
+    }
+
+    // Returns the next entry to use, growing the log if needed
+    private Entry push() {
+        if (count == entries.length) {
+            final Entry[] grown = new Entry[entries.length * 2];
+            System.arraycopy(entries, 0, grown, 0, count);
+            entries = grown;
+        }
+        if (entries[count] == null)
+            entries[count] = new Entry(board);
+
+        return entries[count++];
+    }
+
+    private void set(final Entry entry, final Shape shape, int x, int y, int slot, int score) {
+        entry.shape = shape;
+        entry.x = x;
+        entry.y = y;
+        entry.slot = slot;
+        entry.score = entry.scoreAfter = score;
+        board.placements.getMask(shape, board.placements.entry(shape, x, y), entry.placed);
+        for (int w = 0; w < board.wordCount; ++w)
+            entry.cleared[w] = 0L;
+
+        entry.clearedCount = 0;
+        entry.refilled = false;
+    }
+
+    private void setRefill(final Entry entry, final Shape[] hand) {
+        if (entry.refill == null || entry.refill.length != hand.length)
+            entry.refill = new Shape[hand.length];
+
+        System.arraycopy(hand, 0, entry.refill, 0, hand.length);
+        entry.refilled = true;
+    }
+
+    private static Shape readShape(DataInputStream in) throws IOException {
+        try {
+            return Shape.unpack(in.readUnsignedByte());
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid shape found on the undo log.");
+        }
+    }
+
+    //endregion
+
+    //region Public methods
+
+    // Records that the shape on the given slot of the hand was just put at
+    // (x, y) when the score was the given one (before adding this move).
+    // The moves which were undone can no longer be redone after this.
+    public void recordPut(final Shape shape, int x, int y, int slot, int score) {
+        count = position;
+        set(push(), shape, x, y, slot, score);
+        position = count;
+        open = true;
+    }
+
+    // Records the cells of the mask, which are about to be cleared after the last
+    // put. Clears are ignored unless they come right after a recordPut().
+    public void recordClear(final long[] mask) {
+        if (!open)
+            return;
+
+        final Entry entry = entries[count - 1];
+        System.arraycopy(mask, 0, entry.cleared, 0, board.wordCount);
+        entry.clearedCount = board.getColors(mask, entry.clearedColors);
+        open = false;
+    }
+
+    // Records the new hand taken after the last put, since it was the last one of its hand
+    public void recordRefill(final Shape[] hand) {
+        setRefill(entries[count - 1], hand);
+    }
+
+    // Records the score once the last put and its lines have been counted
+    public void recordScore(int score) {
+        entries[count - 1].scoreAfter = score;
+    }
+
+    // How many moves were recorded, including those that can be redone
+    public int size() {
+        return count;
+    }
+
+    // How many moves are on the board, that is, the index of the move redo() would redo
+    public int position() {
+        return position;
+    }
+
+    public boolean canUndo() {
+        return position != 0;
+    }
+
+    public boolean canRedo() {
+        return position != count;
+    }
+
+    // The slot, shape, score (before and after) and new hand (or null) of the i'th move
+    public int getSlot(int i) {
+        return entries[i].slot;
+    }
+
+    public Shape getShape(int i) {
+        return entries[i].shape;
+    }
+
+    public int getScore(int i) {
+        return entries[i].score;
+    }
+
+    public int getScoreAfter(int i) {
+        return entries[i].scoreAfter;
+    }
+
+    public Shape[] getRefill(int i) {
+        return entries[i].refilled ? entries[i].refill : null;
+    }
+
+    // Undoes the last move on the board, leaving it as it was before
+    public void undo() {
+        final Entry entry = entries[--position];
+        open = false;
+
+        // The cleared cells may include some of the shape, so those are
+        // filled back first and then everything the shape filled is cleared
+        board.fill(entry.cleared, entry.clearedColors);
+        board.clear(entry.placed);
+    }
+
+    // Redoes the last undone move on the board, leaving it as it was after
+    public void redo() {
+        final Entry entry = entries[position++];
+        open = false;
+
+        board.fill(entry.placed, entry.shape.colorIndex);
+        board.clear(entry.cleared);
+    }
+
+    public void clear() {
+        count = position = 0;
+        open = false;
+    }
+
+    //endregion
+
+    //region Serialization
+
+    @Override
+    public void write(DataOutputStream out) throws IOException {
+        // count, position, (shape, x, y, slot, score, scoreAfter,
+        //                   anyCleared, [clearedMask, clearedColors], refillCount, shape*)*
+        //
+        // Everything but the scores and the mask fits in a byte,
+        // and the colors of the cleared cells are packed in 4 bits.
+        out.writeInt(count);
+        out.writeInt(position);
+        for (int i = 0; i < count; ++i) {
+            final Entry entry = entries[i];
+            out.writeByte(entry.shape.pack());
+            out.writeByte(entry.x);
+            out.writeByte(entry.y);
+            out.writeByte(entry.slot);
+            out.writeInt(entry.score);
+            out.writeInt(entry.scoreAfter);
+
+            out.writeBoolean(entry.clearedCount != 0);
+            if (entry.clearedCount != 0) {
+                for (int w = 0; w < board.wordCount; ++w)
+                    out.writeLong(entry.cleared[w]);
+
+                BinSerializer.writeNibbles(out, entry.clearedColors, entry.clearedCount);
+            }
+
+            if (entry.refilled) {
+                out.writeByte(entry.refill.length);
+                for (Shape shape : entry.refill)
+                    out.writeByte(shape.pack());
+            } else {
+                out.writeByte(0);
+            }
+        }
+    }
+
+    // Only the current version can be read, since the older
+    // ones didn't record enough to undo and redo any move
+    @Override
+    public void read(DataInputStream in, int version) throws IOException {
+        clear();
+        if (version < BinSerializer.PACKED_VERSION)
+            throw new IOException("The undo log of version " + version + " cannot be read.");
+
+        final int saved = in.readInt();
+        final int savedPosition = in.readInt();
+        if (saved < 0 || savedPosition < 0 || savedPosition > saved)
+            throw new IOException("Invalid position found on the undo log.");
+
+        for (int i = 0; i < saved; ++i) {
+            final Shape shape = readShape(in);
+            final int x = in.readByte();
+            final int y = in.readByte();
+            if (x < 0 || y < 0 || x + shape.cols > board.size || y + shape.rows > board.size)
+                throw new IOException("Invalid position found on the undo log.");
+
+            final Entry entry = push();
+            set(entry, shape, x, y, in.readByte(), in.readInt());
+            entry.scoreAfter = in.readInt();
+
+            if (in.readBoolean()) {
+                for (int w = 0; w < board.wordCount; ++w) {
+                    entry.cleared[w] = in.readLong();
+                    entry.clearedCount += Long.bitCount(entry.cleared[w]);
+                }
+                if (!board.isInside(entry.cleared))
+                    throw new IOException("Invalid cleared cell found on the undo log.");
+
+                BinSerializer.readNibbles(in, entry.clearedColors, entry.clearedCount);
+                for (int c = 0; c < entry.clearedCount; ++c)
+                    if (entry.clearedColors[c] >= Shape.COUNT)
+                        throw new IOException("Invalid cleared color found on the undo log.");
+            }
+
+            final int refillCount = in.readByte();
+            if (refillCount < 0)
+                throw new IOException("Invalid hand found on the undo log.");
+
+            if (refillCount != 0) {
+                entry.refill = new Shape[refillCount];
+                for (int s = 0; s < refillCount; ++s)
+                    entry.refill[s] = readShape(in);
+
+                entry.refilled = true;
+            }
+        }
+        position = savedPosition;
+    }
+
+    //endregion
+}
@@ -0,0 +1,71 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+// Random keys to hash the states of the game (Zobrist hashing).
+//
+// Every cell has a key, and the hash of a board is the XOR of the keys of
+// its filled cells, so it can be updated as cells are filled and cleared.
+// Shapes also have a key, and the hash of a hand is the sum of the keys of
+// its shapes (a sum and not a XOR so that repeated shapes don't cancel out).
+//
+// The keys are always generated from the same seeds so hashes are the same
+// on every run.
+public final class Zobrist {
+
+    //region Static members
+
+    private static final long[] SHAPE_KEYS = keys(Shape.ALL.length, 0x5EEDL);
+
+    //endregion
+
+    //region Constructor
+
+    private Zobrist() {
+    }
+
+    //endregion
+
+    //region Static methods
+
+    // Generates the given amount of keys with SplitMix64
+    static long[] keys(int count, long seed) {
+        final long[] result = new long[count];
+        final SplitMixRandom random = new SplitMixRandom(seed);
+        for (int i = 0; i < count; ++i)
+            result[i] = random.nextLong();
+
+        return result;
+    }
+
+    public static long shape(final Shape shape) {
+        return SHAPE_KEYS[shape.id];
+    }
+
+    // The hash of the shapes in the hand, ignoring the empty (null) slots
+    public static long hand(final Shape[] hand) {
+        long hash = 0L;
+        for (Shape shape : hand)
+            if (shape != null)
+                hash += SHAPE_KEYS[shape.id];
+
+        return hash;
+    }
+
+    //endregion
+}
@@ -24,5 +24,7 @@ import java.io.IOException;
 public interface BinSerializable {
     void write(final DataOutputStream out) throws IOException;
 
-    void read(final DataInputStream in) throws IOException;
+    // The version is the one of BinSerializer the data was written with,
+    // which may be older than the current one if the data was saved before
+    void read(final DataInputStream in, int version) throws IOException;
 }
@@ -0,0 +1,164 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.serializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+// Saves are the HEADER, the VERSION they were written with, and then
+// (since PACKED_VERSION) the length of the data, the data itself, and
+// its checksum, so a save which was only partially written is detected.
+//
+// Saves from older versions are still read, since every BinSerializable
+// is given the version the data was written with to read it accordingly.
+public class BinSerializer {
+
+    // ascii (klooni) and binary (1010b)
+    private final static byte[] HEADER = {0x6B, 0x6C, 0x6F, 0x6F, 0x6E, 0x69, 0xa};
+
+    // MODIFY THIS VALUE EVERY TIME A BinSerializable IMPLEMENTATION CHANGES
+    // And make sure that the older versions can still be read after the change.
+    public final static int VERSION = 7;
+
+    // The first version with the checksum and the data packed (colors in 4
+    // bits, shapes in a byte...). Older ones wrote an int for almost anything.
+    public final static int PACKED_VERSION = 5;
+
+    // The first version with the sequence number of the save, for its journal
+    public final static int JOURNAL_VERSION = 6;
+
+    // The first version with the state of the random pieces
+    public final static int RANDOM_VERSION = 7;
+
+    // The oldest version which can still be read
+    public final static int OLDEST_VERSION = 2;
+
+    // Far more than any game needs, but small enough to always fit in memory,
+    // so that a corrupt length can't make reading the save run out of it
+    public final static int MAX_LENGTH = 16 * 1024 * 1024;
+
+    public static void serialize(final BinSerializable serializable, final OutputStream output)
+            throws IOException {
+        // The data is written to memory first to know its length and checksum
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        final DataOutputStream data = new DataOutputStream(buffer);
+        serializable.write(data);
+        data.flush();
+        if (buffer.size() > MAX_LENGTH)
+            throw new IOException("The data is too large to be saved (" + buffer.size() + " bytes).");
+
+        final CRC32 crc = new CRC32();
+        crc.update(buffer.toByteArray(), 0, buffer.size());
+
+        DataOutputStream out = new DataOutputStream(output);
+        try {
+            out.write(HEADER);
+            out.writeInt(VERSION);
+            out.writeInt(buffer.size());
+            buffer.writeTo(out);
+            out.writeInt((int) crc.getValue());
+        } finally {
+            try {
+                out.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    // Serializes everything to memory, so it can be written somewhere else later
+    public static byte[] serialize(final BinSerializable serializable) throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        serialize(serializable, output);
+        return output.toByteArray();
+    }
+
+    public static void deserialize(final BinSerializable serializable, final InputStream input)
+            throws IOException {
+        DataInputStream in = new DataInputStream(input);
+        try {
+            // Read the HEADER and the VERSION (checks)
+            byte[] savedBuffer = new byte[HEADER.length];
+            in.readFully(savedBuffer);
+            if (!Arrays.equals(savedBuffer, HEADER))
+                throw new IOException("Invalid saved header found.");
+
+            int savedVersion = in.readInt();
+            if (savedVersion < OLDEST_VERSION || savedVersion > VERSION) {
+                throw new IOException(
+                        "Invalid saved version found. Should be at most " + VERSION + ", not " + savedVersion);
+            }
+
+            if (savedVersion < PACKED_VERSION) {
+                // There's no checksum to check, so just try reading it
+                serializable.read(in, savedVersion);
+                return;
+            }
+
+            final int length = in.readInt();
+            if (length < 0 || length > MAX_LENGTH)
+                throw new IOException("Invalid saved length found.");
+
+            final byte[] data = new byte[length];
+            in.readFully(data);
+
+            final CRC32 crc = new CRC32();
+            crc.update(data, 0, length);
+            if (in.readInt() != (int) crc.getValue())
+                throw new IOException("Invalid saved checksum found, the data is corrupt.");
+
+            // Read the saved data if the checks passed
+            final ByteArrayInputStream dataInput = new ByteArrayInputStream(data);
+            serializable.read(new DataInputStream(dataInput), savedVersion);
+            if (dataInput.available() != 0)
+                throw new IOException("Found more saved data than expected.");
+        } finally {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    // Writes the given values, which must fit in 4 bits, two per byte
+    public static void writeNibbles(final DataOutputStream out, final byte[] values, int count)
+            throws IOException {
+        for (int i = 0; i < count; i += 2) {
+            final int high = values[i] & 0xF;
+            final int low = i + 1 < count ? values[i + 1] & 0xF : 0;
+            out.writeByte(high << 4 | low);
+        }
+    }
+
+    // Reads the given amount of values written by writeNibbles()
+    public static void readNibbles(final DataInputStream in, final byte[] values, int count)
+            throws IOException {
+        for (int i = 0; i < count; i += 2) {
+            final int packed = in.readUnsignedByte();
+            values[i] = (byte) (packed >>> 4);
+            if (i + 1 < count)
+                values[i + 1] = (byte) (packed & 0xF);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.serializer;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Writes saves to disk on a background thread, so whoever saves doesn't
+// have to wait for the disk. The data is first written to a temporary file
+// which is synced and then renamed over the real one, so if the game is
+// killed while saving, the previous save is left as it was.
+//
+// Only the latest data for every file is kept while waiting to be written,
+// so saving many times in a row only writes the last one. Files are written
+// in the order they were first given, so a file that is written and then
+// another deleted are always done in that order, even if the first one is
+// given new data in between.
+//
+// Tasks can also be queued for a file, to do something with it only once
+// everything given before is on disk.
+public class SaveWriter {
+
+    //region Members
+
+    // The latest data to write to every file (a byte[]), null to delete it,
+    // or a Runnable to run instead
+    private final LinkedHashMap<File, Object> pending = new LinkedHashMap<File, Object>();
+
+    // The thread is only alive while there's something to write
+    private Thread thread;
+    private boolean writing;
+
+    //endregion
+
+    //region Private methods
+
+    private synchronized void enqueue(final File file, final Object data) {
+        // A file which was already pending keeps its place in the queue
+        pending.put(file, data);
+        if (thread == null) {
+            thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    writeAll();
+                }
+            }, "SaveWriter");
+            thread.start();
+        }
+    }
+
+    private void writeAll() {
+        while (true) {
+            final File file;
+            final Object data;
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    thread = null;
+                    writing = false;
+                    notifyAll();
+                    return;
+                }
+
+                final Iterator<Map.Entry<File, Object>> it = pending.entrySet().iterator();
+                final Map.Entry<File, Object> next = it.next();
+                it.remove();
+                file = next.getKey();
+                data = next.getValue();
+                writing = true;
+            }
+
+            try {
+                if (data == null) {
+                    if (file.exists() && !file.delete())
+                        throw new IOException("Could not delete " + file);
+                } else if (data instanceof Runnable) {
+                    ((Runnable) data).run();
+                } else {
+                    writeAtomically(file, (byte[]) data);
+                }
+            } catch (IOException e) {
+                // Nothing else can be done, but the previous file is still there
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static void writeAtomically(final File file, final byte[] data) throws IOException {
+        final File temp = new File(file.getPath() + ".tmp");
+        final FileOutputStream out = new FileOutputStream(temp);
+        try {
+            out.write(data);
+            out.flush();
+            out.getFD().sync();
+        } finally {
+            out.close();
+        }
+
+        if (!temp.renameTo(file)) {
+            // Some platforms can't rename over an existing file
+            if (!file.delete() || !temp.renameTo(file))
+                throw new IOException("Could not replace " + file);
+        }
+    }
+
+    //endregion
+
+    //region Public methods
+
+    // Writes the data to the file, replacing whatever it had, at some point later
+    public void write(final File file, final byte[] data) {
+        if (data == null)
+            throw new NullPointerException("Cannot write null data");
+
+        enqueue(file, data);
+    }
+
+    // Deletes the file at some point later (after any file given before)
+    public void delete(final File file) {
+        enqueue(file, null);
+    }
+
+    // Runs the task at some point later (after any file given before) on the thread
+    // that writes the files, instead of anything else pending for the given file
+    public void run(final File file, final Runnable task) {
+        if (task == null)
+            throw new NullPointerException("Cannot run a null task");
+
+        enqueue(file, task);
+    }
+
+    // Waits until everything written or deleted so far is on disk
+    public synchronized void flush() {
+        while (writing || !pending.isEmpty()) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    //endregion
+}
@@ -0,0 +1,184 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BitBoardTest {
+
+    // The usual board, and others whose rows are split differently between words
+    private static final int[] SIZES = {10, 9, 11, 8, 3};
+
+    @Test
+    public void putAndClearEveryShapeAtTheEdges() {
+        for (int size : SIZES) {
+            for (Shape shape : Shape.ALL) {
+                final BitBoard board = new BitBoard(size);
+                if (shape.cols > size || shape.rows > size) {
+                    assertFalse(board.put(shape, 0, 0, shape.colorIndex));
+                    assertEquals(0, board.filledCount());
+                    continue;
+                }
+
+                final int right = size - shape.cols;
+                final int top = size - shape.rows;
+                final int[][] corners = {{0, 0}, {right, 0}, {0, top}, {right, top}};
+                for (int[] corner : corners)
+                    putAndClear(board, shape, corner[0], corner[1]);
+
+                // One past every edge is outside the board
+                assertFalse(board.put(shape, right + 1, 0, shape.colorIndex));
+                assertFalse(board.put(shape, 0, top + 1, shape.colorIndex));
+                assertFalse(board.put(shape, -1, 0, shape.colorIndex));
+                assertFalse(board.put(shape, 0, -1, shape.colorIndex));
+                assertEquals(0, board.filledCount());
+            }
+        }
+    }
+
+    private static void putAndClear(BitBoard board, Shape shape, int x, int y) {
+        final String where = shape.cols + "x" + shape.rows + " #" + shape.id
+                + " at (" + x + ", " + y + ") of " + board.size;
+
+        assertTrue(where, board.canPut(shape, x, y));
+        assertTrue(where, board.put(shape, x, y, shape.colorIndex));
+        assertEquals(where, shape.area, board.filledCount());
+        for (int j = 0; j < board.size; ++j) {
+            for (int i = 0; i < board.size; ++i) {
+                final boolean covered = i >= x && i < x + shape.cols
+                        && j >= y && j < y + shape.rows && shape.filled(j - y, i - x);
+
+                assertEquals(where, !covered, board.isEmpty(i, j));
+                assertEquals(where, covered ? shape.colorIndex : -1, board.getColor(i, j));
+            }
+        }
+
+        // The same shape can't go over itself
+        assertFalse(where, board.put(shape, x, y, shape.colorIndex));
+
+        final long[] mask = board.newMask();
+        board.placements.getMask(shape, board.placements.entry(shape, x, y), mask);
+        board.clear(mask);
+        assertEquals(where, 0, board.filledCount());
+        assertEquals(where, 0L, board.getHash());
+        for (int j = 0; j < board.size; ++j)
+            for (int i = 0; i < board.size; ++i)
+                assertEquals(where, -1, board.getColor(i, j));
+    }
+
+    @Test
+    public void clearCrossingRowAndColumn() {
+        final BitBoard board = new BitBoard(10);
+        final Shape single = Shape.fromIndex(0, 0);
+
+        // Row 4 and column 7 are full but for the cell where they cross,
+        // and there's something else on the board which must be left alone
+        for (int i = 0; i < 10; ++i) {
+            if (i != 7)
+                assertTrue(board.put(single, i, 4, 1));
+            if (i != 4)
+                assertTrue(board.put(single, 7, i, 2));
+        }
+        assertTrue(board.put(single, 0, 0, 3));
+
+        final long[] mask = board.newMask();
+        assertEquals(0, board.completeLines(mask));
+
+        assertTrue(board.put(single, 7, 4, 4));
+        assertEquals(2, board.completeLines(single, 7, 4, mask));
+        assertEquals(2, board.completeLines(mask));
+
+        board.clear(mask);
+        assertEquals(1, board.filledCount());
+        assertEquals(3, board.getColor(0, 0));
+        assertEquals(0, board.completeLines(mask));
+
+        // Both lines can be filled again as if nothing was there
+        for (int i = 0; i < 10; ++i)
+            assertTrue(board.put(single, i, 4, 1));
+        assertEquals(1, board.completeLines(mask));
+    }
+
+    // The fill counters must always find the same complete lines as looking at every cell
+    @Test
+    public void fillCountersMatchTheCellsOverRandomGames() {
+        final Random random = new Random(1010);
+        final BitBoard board = new BitBoard(10);
+        final long[] mask = board.newMask();
+        final long[] expected = board.newMask();
+        final int[] entries = new int[board.size * board.size];
+
+        for (int moves = 0; moves < 20000; ++moves) {
+            final Shape shape = Shape.random(random);
+            final int count = board.findPlacements(shape, entries);
+            if (count == 0) {
+                // Game over, start another one
+                board.filledMask(mask);
+                board.clear(mask);
+                continue;
+            }
+
+            final int entry = entries[random.nextInt(count)];
+            final int x = board.placements.getX(shape, entry);
+            final int y = board.placements.getY(shape, entry);
+            assertTrue(board.put(shape, x, y, shape.colorIndex));
+
+            final int lines = completeLines(board, expected);
+            assertEquals(lines, board.completeLines(shape, x, y, mask));
+            assertArrayEquals(expected, mask);
+            assertEquals(lines, board.completeLines(mask));
+            assertArrayEquals(expected, mask);
+
+            board.clear(mask);
+            assertEquals(0, completeLines(board, expected));
+        }
+    }
+
+    // Finds the complete lines looking at every cell
+    private static int completeLines(BitBoard board, long[] mask) {
+        final int size = board.size;
+        for (int w = 0; w < mask.length; ++w)
+            mask[w] = 0L;
+
+        int count = 0;
+        for (int line = 0; line < size; ++line) {
+            boolean row = true, col = true;
+            for (int i = 0; i < size; ++i) {
+                row &= !board.isEmpty(i, line);
+                col &= !board.isEmpty(line, i);
+            }
+            for (int i = 0; i < size; ++i) {
+                final int rowIndex = line * size + i;
+                final int colIndex = i * size + line;
+                if (row)
+                    mask[rowIndex >>> 6] |= 1L << rowIndex;
+                if (col)
+                    mask[colIndex >>> 6] |= 1L << colIndex;
+            }
+            count += (row ? 1 : 0) + (col ? 1 : 0);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class LegalMoveIndexTest {
+
+    // The index must always count what a scan over every offset would,
+    // as random games fill and clear the board, copy it and read it back
+    @Test
+    public void indexMatchesAScanOverRandomGames() {
+        final Random random = new Random(1010);
+        final BitBoard board = new BitBoard(10);
+        board.trackLegalMoves();
+        final BitBoard copy = new BitBoard(10);
+        copy.trackLegalMoves();
+
+        final long[] mask = board.newMask();
+        final int[] entries = new int[board.size * board.size];
+
+        for (int moves = 0; moves < 20000; ++moves) {
+            final Shape shape = Shape.random(random);
+            final int count = board.findPlacements(shape, entries);
+            assertEquals(count, board.countPlacements(shape));
+            assertEquals(count != 0, board.canPutAnywhere(shape));
+            if (count == 0) {
+                board.filledMask(mask);
+                board.clear(mask);
+                assertIndexMatches(board);
+                continue;
+            }
+
+            final int entry = entries[random.nextInt(count)];
+            board.put(shape, entry, shape.colorIndex);
+            assertIndexMatches(board);
+
+            if (board.completeLines(shape, board.placements.getX(shape, entry),
+                    board.placements.getY(shape, entry), mask) > 0) {
+                board.clear(mask);
+                assertIndexMatches(board);
+            }
+
+            if (moves % 100 == 0) {
+                copy.set(board);
+                assertIndexMatches(copy);
+            }
+        }
+    }
+
+    private static void assertIndexMatches(BitBoard board) {
+        final int[] entries = new int[board.size * board.size];
+        for (Shape shape : Shape.ALL) {
+            final int count = board.findPlacements(shape, entries);
+            assertEquals("Shape #" + shape.id, count, board.countPlacements(shape));
+            assertEquals("Shape #" + shape.id, count != 0, board.canPutAnywhere(shape));
+        }
+    }
+}
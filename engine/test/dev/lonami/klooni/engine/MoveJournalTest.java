@@ -0,0 +1,197 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MoveJournalTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private static final Shape[] HAND = {Shape.fromIndex(0, 0), Shape.fromIndex(8, 3), Shape.fromIndex(6, 1)};
+
+    // Every journal goes on the file the one before the previous used, and
+    // replaying goes through the journal of the save and the one after it
+    @Test
+    public void journalsAlternateBetweenTwoFiles() throws IOException {
+        final MoveJournal journal = new MoveJournal(new File(folder.getRoot(), "journal"));
+
+        journal.start(1);
+        final File first = journal.getFile();
+        journal.open(1);
+        journal.appendPut(0, 1, 2, null);
+        journal.appendUndo();
+
+        assertEquals(first, journal.start(2));
+        final File second = journal.getFile();
+        assertNotEquals(first, second);
+        journal.open(2);
+        journal.appendRedo();
+        journal.appendPut(2, 3, 4, HAND);
+
+        final Recorder recorder = new Recorder();
+        assertEquals(2, journal.replay(1, recorder));
+        recorder.assertMoves("put 0 1 2", "undo", "redo", "put 2 3 4 hand");
+
+        // The third journal replaces the first one
+        assertEquals(second, journal.start(3));
+        journal.open(3);
+        assertEquals(first, journal.getFile());
+        journal.appendUndo();
+
+        final Recorder afterSecond = new Recorder();
+        assertEquals(3, journal.replay(2, afterSecond));
+        afterSecond.assertMoves("redo", "put 2 3 4 hand", "undo");
+
+        // Nothing was saved after the first journal is gone, so it can't be replayed
+        final Recorder afterFirst = new Recorder();
+        assertEquals(1, journal.replay(1, afterFirst));
+        afterFirst.assertMoves();
+        journal.close();
+    }
+
+    // A record that was only partially written never happened, and neither
+    // did anything on the next journal, since the game was killed there
+    @Test
+    public void tornRecordsEndTheReplay() throws IOException {
+        final MoveJournal journal = new MoveJournal(new File(folder.getRoot(), "journal"));
+        journal.start(1);
+        journal.open(1);
+        journal.appendPut(0, 1, 2, null);
+        journal.appendPut(1, 5, 5, HAND);
+        final File first = journal.getFile();
+
+        journal.start(2);
+        journal.open(2);
+        journal.appendUndo();
+        journal.close();
+
+        truncate(first, 1);
+        final Recorder recorder = new Recorder();
+        assertEquals(1, journal.replay(1, recorder));
+        recorder.assertMoves("put 0 1 2");
+    }
+
+    // Not even the header of the journal made it to disk
+    @Test
+    public void tornHeadersEndTheReplay() throws IOException {
+        final MoveJournal journal = new MoveJournal(new File(folder.getRoot(), "journal"));
+        journal.start(1);
+        journal.open(1);
+        final File first = journal.getFile();
+
+        journal.start(2);
+        journal.open(2);
+        journal.appendUndo();
+        journal.close();
+
+        truncate(first, first.length() - 2);
+        final Recorder recorder = new Recorder();
+        assertEquals(1, journal.replay(1, recorder));
+        recorder.assertMoves();
+    }
+
+    // A game killed and loaded again replays its moves, and its
+    // journal continues where the replayed one was left off
+    @Test
+    public void resumesAfterBeingKilled() throws IOException {
+        final File file = new File(folder.getRoot(), "journal");
+        final MoveJournal killed = new MoveJournal(file);
+        killed.start(7);
+        killed.open(7);
+        killed.appendPut(0, 0, 0, null);
+        killed.appendPut(1, 9, 9, null);
+
+        final MoveJournal loaded = new MoveJournal(file);
+        final Recorder recorder = new Recorder();
+        final long sequence = loaded.replay(7, recorder);
+        assertEquals(7, sequence);
+        recorder.assertMoves("put 0 0 0", "put 1 9 9");
+
+        loaded.start(sequence + 1);
+        assertFalse(loaded.isOpen());
+        try {
+            loaded.appendRedo();
+            fail("The move was appended before the journal was opened");
+        } catch (IOException expected) {
+        }
+
+        loaded.open(sequence + 1);
+        assertTrue(loaded.isOpen());
+        loaded.appendPut(2, 4, 4, HAND);
+        assertEquals(1, loaded.getRecordCount());
+
+        final Recorder resumed = new Recorder();
+        assertEquals(8, loaded.replay(7, resumed));
+        resumed.assertMoves("put 0 0 0", "put 1 9 9", "put 2 4 4 hand");
+        loaded.close();
+        killed.close();
+    }
+
+    private static void truncate(File file, long bytes) throws IOException {
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(raf.length() - bytes);
+        } finally {
+            raf.close();
+        }
+    }
+
+    // Keeps the moves replayed as text, to compare them easily
+    private static class Recorder implements MoveJournal.Player {
+        final List<String> moves = new ArrayList<String>();
+
+        @Override
+        public void put(int slot, int x, int y, Shape[] hand) {
+            if (hand != null)
+                assertEquals(Arrays.asList(HAND), Arrays.asList(hand));
+
+            moves.add("put " + slot + " " + x + " " + y + (hand == null ? "" : " hand"));
+        }
+
+        @Override
+        public void undo() {
+            moves.add("undo");
+        }
+
+        @Override
+        public void redo() {
+            moves.add("redo");
+        }
+
+        void assertMoves(String... expected) {
+            assertEquals(Arrays.asList(expected), moves);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PlacementsTest {
+
+    private static final int[] SIZES = {10, 9, 11, 8, 3};
+
+    // Every mask must be the cells of the shape at its offset, worked out cell by cell
+    @Test
+    public void masksMatchTheShapes() {
+        for (int size : SIZES) {
+            final Placements placements = Placements.forSize(size);
+            final BitBoard board = new BitBoard(size);
+            final long[] mask = board.newMask();
+            final long[] expected = board.newMask();
+
+            for (Shape shape : Shape.ALL) {
+                final int cols = Math.max(0, size - shape.cols + 1);
+                final int rows = Math.max(0, size - shape.rows + 1);
+                assertEquals(cols * rows, placements.count(shape));
+
+                for (int entry = 0; entry < placements.count(shape); ++entry) {
+                    final int x = placements.getX(shape, entry);
+                    final int y = placements.getY(shape, entry);
+                    assertTrue(x >= 0 && x < cols && y >= 0 && y < rows);
+                    assertEquals(entry, placements.entry(shape, x, y));
+
+                    for (int w = 0; w < expected.length; ++w)
+                        expected[w] = 0L;
+                    for (int i = 0; i < shape.rows; ++i) {
+                        for (int j = 0; j < shape.cols; ++j) {
+                            if (shape.filled(i, j)) {
+                                final int index = (y + i) * size + x + j;
+                                expected[index >>> 6] |= 1L << index;
+                            }
+                        }
+                    }
+
+                    placements.getMask(shape, entry, mask);
+                    assertArrayEquals("Shape #" + shape.id + " at (" + x + ", " + y + ") of " + size,
+                            expected, mask);
+                    assertTrue(board.isInside(mask));
+                }
+            }
+        }
+    }
+
+    // Every cell must know all the entries that cover it, and none other
+    @Test
+    public void coveredByMatchesTheMasks() {
+        for (int size : SIZES) {
+            final Placements placements = Placements.forSize(size);
+            final long[] mask = new long[placements.wordCount];
+            final int[] covering = new int[size * size];
+
+            int entries = 0;
+            for (Shape shape : Shape.ALL) {
+                for (int entry = 0; entry < placements.count(shape); ++entry, ++entries) {
+                    assertEquals(shape.id, placements.shapeOfEntry[placements.firstEntry[shape.id] + entry]);
+                    placements.getMask(shape, entry, mask);
+                    for (int index = 0; index < size * size; ++index) {
+                        if ((mask[index >>> 6] & 1L << index) != 0) {
+                            covering[index]++;
+                            assertTrue(contains(placements.coveredBy[index],
+                                    placements.firstEntry[shape.id] + entry));
+                        }
+                    }
+                }
+            }
+
+            assertEquals(entries, placements.entryCount);
+            for (int index = 0; index < size * size; ++index)
+                assertEquals(covering[index], placements.coveredBy[index].length);
+        }
+    }
+
+    private static boolean contains(int[] values, int value) {
+        for (int v : values)
+            if (v == value)
+                return true;
+
+        return false;
+    }
+}
@@ -0,0 +1,46 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertSame;
+
+public class ShapeTest {
+
+    // Old saves have any rotation count, which is the same as its remainder
+    @Test
+    public void rotationsWrapAround() {
+        for (Shape shape : Shape.ALL) {
+            assertSame(shape, Shape.fromIndex(shape.colorIndex, shape.rotation));
+            assertSame(shape, Shape.fromIndex(shape.colorIndex, shape.rotation + 4));
+            assertSame(shape, Shape.unpack(shape.pack()));
+        }
+    }
+
+    // A negative rotation would otherwise pick a shape of another kind
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeRotations() {
+        Shape.fromIndex(3, -1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownKinds() {
+        Shape.fromIndex(Shape.COUNT, 0);
+    }
+}
@@ -0,0 +1,197 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SolverTest {
+
+    // Long enough for any of the searches that should finish on their own
+    private static final long NO_BUDGET = 60000L;
+
+    // The same board and hand must always give the same moves,
+    // no matter how many threads the search is split among
+    @Test
+    public void sameSolutionForTheSameSeed() {
+        final Random random = new Random(1010);
+        for (int game = 0; game < 8; ++game) {
+            final BitBoard board = randomBoard(random);
+            final Shape[] hand = {Shape.random(random), Shape.random(random), Shape.random(random)};
+
+            final Solution expected = solve(1, board, hand);
+            assertSameSolution(expected, solve(1, board, hand));
+            assertSameSolution(expected, solve(4, board, hand));
+        }
+    }
+
+    // The only gap on the first row has to be filled, since
+    // that clears the row and leaves the board empty again
+    @Test
+    public void completesTheLine() {
+        final BitBoard board = new BitBoard(10);
+        final Shape single = Shape.fromIndex(0, 0);
+        for (int x = 0; x < board.size; ++x)
+            if (x != 3)
+                board.put(single, x, 0, single.colorIndex);
+
+        final Solver solver = new Solver(1);
+        final Solution solution = solver.solve(board, new Shape[]{null, single, null}, NO_BUDGET);
+        solver.shutdown();
+
+        assertNotNull(solution);
+        assertArrayEquals(new int[]{1}, solution.slots);
+        assertArrayEquals(new int[]{3}, solution.xs);
+        assertArrayEquals(new int[]{0}, solution.ys);
+    }
+
+    // The square only fits on the hole left in the middle of the board,
+    // and the shape that can't be put anywhere is left out of the moves
+    @Test
+    public void putsTheShapeOnTheOnlyPlaceLeft() {
+        final BitBoard board = new BitBoard(10);
+        final Shape single = Shape.fromIndex(0, 0);
+        for (int y = 0; y < board.size; ++y)
+            for (int x = 0; x < board.size; ++x)
+                if ((x != 4 && x != 5) || (y != 4 && y != 5))
+                    board.put(single, x, y, single.colorIndex);
+
+        final Solver solver = new Solver(1);
+        final Solution solution = solver.solve(board,
+                new Shape[]{Shape.fromIndex(2, 0), Shape.fromIndex(1, 0), null}, NO_BUDGET);
+        solver.shutdown();
+
+        assertNotNull(solution);
+        assertArrayEquals(new int[]{1}, solution.slots);
+        assertArrayEquals(new int[]{4}, solution.xs);
+        assertArrayEquals(new int[]{4}, solution.ys);
+    }
+
+    // A search cancelled from another thread must return soon after
+    @Test
+    public void cancelStopsTheSearch() throws InterruptedException {
+        final Solver solver = slowSolver();
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                solver.solve(new BitBoard(10), slowHand(), NO_BUDGET);
+            }
+        });
+        thread.start();
+
+        final long start = System.nanoTime();
+        Thread.sleep(100);
+        while (thread.isAlive() && System.nanoTime() - start < 5000 * 1000000L) {
+            // The search may not have started yet, in which case there is nothing to cancel
+            solver.cancel();
+            thread.join(10);
+        }
+        solver.shutdown();
+
+        assertFalse("The search didn't stop", thread.isAlive());
+    }
+
+    // A flag set before the search even starts must stop it too
+    @Test
+    public void cancelFlagSetBeforeStarting() {
+        final Solver solver = slowSolver();
+        final long start = System.nanoTime();
+        final Solution solution = solver.solve(new BitBoard(10), slowHand(), NO_BUDGET, new AtomicBoolean(true));
+        final long elapsed = (System.nanoTime() - start) / 1000000L;
+        solver.shutdown();
+
+        assertNull(solution);
+        assertTrue("Took " + elapsed + "ms", elapsed < 1000);
+    }
+
+    @Test
+    public void respectsTheTimeBudget() {
+        final Solver solver = slowSolver();
+        final long start = System.nanoTime();
+        solver.solve(new BitBoard(10), slowHand(), 200);
+        final long elapsed = (System.nanoTime() - start) / 1000000L;
+        solver.shutdown();
+
+        // Some margin is left for the threads to notice it ran out
+        assertTrue("Took " + elapsed + "ms", elapsed < 200 + 500);
+    }
+
+    // A solver which would take far longer than any of the tests to finish
+    private static Solver slowSolver() {
+        final Solver solver = new Solver(2);
+        solver.setWidth(TranspositionTable.MAX_ORDER + 1);
+        solver.setLookahead(true);
+        solver.setTranspositionTable(null);
+        return solver;
+    }
+
+    // Small shapes which fit almost everywhere on an empty board
+    private static Shape[] slowHand() {
+        return new Shape[]{Shape.fromIndex(0, 0), Shape.fromIndex(3, 0), Shape.fromIndex(7, 0)};
+    }
+
+    private static Solution solve(int threads, BitBoard board, Shape[] hand) {
+        final Solver solver = new Solver(threads);
+        solver.setWidth(32);
+        solver.setLookahead(true);
+        final Solution solution = solver.solve(board, hand, NO_BUDGET);
+        solver.shutdown();
+        return solution;
+    }
+
+    // A board from a game played with random moves for a while
+    private static BitBoard randomBoard(Random random) {
+        final BitBoard board = new BitBoard(10);
+        final long[] mask = board.newMask();
+        final int[] entries = new int[board.size * board.size];
+        for (int moves = random.nextInt(40); moves-- != 0; ) {
+            final Shape shape = Shape.random(random);
+            final int count = board.findPlacements(shape, entries);
+            if (count == 0)
+                break;
+
+            final int entry = entries[random.nextInt(count)];
+            board.put(shape, entry, shape.colorIndex);
+            if (board.completeLines(shape, board.placements.getX(shape, entry),
+                    board.placements.getY(shape, entry), mask) > 0)
+                board.clear(mask);
+        }
+        return board;
+    }
+
+    private static void assertSameSolution(Solution expected, Solution actual) {
+        if (expected == null) {
+            assertNull(actual);
+            return;
+        }
+        assertNotNull(actual);
+        assertArrayEquals(expected.slots, actual.slots);
+        assertArrayEquals(expected.xs, actual.xs);
+        assertArrayEquals(expected.ys, actual.ys);
+        assertEquals(expected.value, actual.value, 0f);
+    }
+}
@@ -0,0 +1,58 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import dev.lonami.klooni.serializer.BinSerializer;
+
+import static org.junit.Assert.assertEquals;
+
+public class SplitMixRandomTest {
+
+    // A generator saved at any point (even right after a gaussian, which
+    // Random generates in pairs) goes on exactly as the one it was saved from
+    @Test
+    public void resumesWhereItWasSaved() throws IOException {
+        final SplitMixRandom random = new SplitMixRandom(1010);
+        for (int i = 0; i < 100; ++i) {
+            random.nextGaussian();
+            final SplitMixRandom resumed = new SplitMixRandom(0);
+            resumed.read(new DataInputStream(new ByteArrayInputStream(save(random))), BinSerializer.VERSION);
+
+            assertEquals(random.nextGaussian(), resumed.nextGaussian(), 0.0);
+            assertEquals(random.nextInt(), resumed.nextInt());
+            assertEquals(random.nextDouble(), resumed.nextDouble(), 0.0);
+            assertEquals(random.nextLong(), resumed.nextLong());
+        }
+    }
+
+    private static byte[] save(SplitMixRandom random) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        random.write(out);
+        out.close();
+        return bytes.toByteArray();
+    }
+}
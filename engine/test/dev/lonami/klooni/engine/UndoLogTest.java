@@ -0,0 +1,98 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import dev.lonami.klooni.serializer.BinSerializer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+public class UndoLogTest {
+
+    // Where the colors of the cleared cells of the first entry are saved: the
+    // count and position, the shape, x, y, slot, both scores, a flag and the mask
+    private static final int FIRST_COLORS = 4 + 4 + 4 + 4 + 4 + 1 + 2 * 8;
+
+    @Test
+    public void readsWhatItWrote() throws IOException {
+        final BitBoard board = new BitBoard(10);
+        final UndoLog log = new UndoLog(board);
+        final byte[] saved = completeFirstRow(board, log);
+
+        final BitBoard read = new BitBoard(10);
+        final UndoLog readLog = new UndoLog(read);
+        readLog.read(new DataInputStream(new ByteArrayInputStream(saved)), BinSerializer.VERSION);
+        assertEquals(1, readLog.size());
+        assertEquals(1, readLog.position());
+        assertEquals(1, readLog.getScoreAfter(0));
+
+        // Undoing puts back the cleared row, with the colors it had
+        readLog.undo();
+        assertFalse(readLog.canUndo());
+        for (int x = 0; x < 9; ++x)
+            assertEquals(x % Shape.COUNT, read.getColor(x, 0));
+    }
+
+    // Colors are saved in 4 bits, and anything past the last shape is corrupt
+    @Test
+    public void rejectsInvalidClearedColors() {
+        final BitBoard board = new BitBoard(10);
+        final byte[] saved = completeFirstRow(board, new UndoLog(board));
+        saved[FIRST_COLORS] = (byte) 0xF0;
+
+        try {
+            new UndoLog(new BitBoard(10)).read(
+                    new DataInputStream(new ByteArrayInputStream(saved)), BinSerializer.VERSION);
+            fail("The invalid color was read");
+        } catch (IOException expected) {
+        }
+    }
+
+    // Fills the first row but its last cell (each with a different color) and
+    // records the move which completes it, returning the log as it is saved
+    private static byte[] completeFirstRow(BitBoard board, UndoLog log) {
+        final Shape single = Shape.fromIndex(0, 0);
+        for (int x = 0; x < 9; ++x)
+            board.put(single, x, 0, x % Shape.COUNT);
+
+        board.put(single, 9, 0, single.colorIndex);
+        log.recordPut(single, 9, 0, 0, 0);
+        final long[] mask = board.newMask();
+        assertEquals(1, board.completeLines(single, 9, 0, mask));
+        log.recordClear(mask);
+        board.clear(mask);
+        log.recordScore(1);
+
+        try {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            log.write(new DataOutputStream(bytes));
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class ZobristTest {
+
+    // The hash kept as cells are filled and cleared must be the one of the cells filled
+    @Test
+    public void hashMatchesOneFromScratchOverRandomGames() {
+        final Random random = new Random(1010);
+        final BitBoard board = new BitBoard(10);
+        final long[] mask = board.newMask();
+        final int[] entries = new int[board.size * board.size];
+
+        for (int moves = 0; moves < 20000; ++moves) {
+            final Shape shape = Shape.random(random);
+            final int count = board.findPlacements(shape, entries);
+            if (count == 0) {
+                board.filledMask(mask);
+                board.clear(mask);
+                assertEquals(0L, board.getHash());
+                continue;
+            }
+
+            final int entry = entries[random.nextInt(count)];
+            board.put(shape, entry, shape.colorIndex);
+            assertEquals(hashFromScratch(board), board.getHash());
+
+            if (board.completeLines(shape, board.placements.getX(shape, entry),
+                    board.placements.getY(shape, entry), mask) > 0) {
+                board.clear(mask);
+                assertEquals(hashFromScratch(board), board.getHash());
+            }
+        }
+    }
+
+    // The same cells give the same hash, no matter their colors or the order they were filled
+    @Test
+    public void hashOnlyDependsOnTheFilledCells() {
+        final Shape single = Shape.fromIndex(0, 0);
+        final BitBoard a = new BitBoard(10);
+        final BitBoard b = new BitBoard(10);
+        for (int i = 0; i < 10; ++i) {
+            a.put(single, i, i, 1);
+            b.put(single, 9 - i, 9 - i, 2);
+        }
+        assertEquals(a.getHash(), b.getHash());
+        assertEquals(hashFromScratch(a), a.getHash());
+    }
+
+    @Test
+    public void handHashIgnoresTheOrderAndEmptySlots() {
+        final Shape first = Shape.fromIndex(3, 0);
+        final Shape second = Shape.fromIndex(7, 2);
+        assertEquals(Zobrist.hand(new Shape[]{first, second, first}),
+                Zobrist.hand(new Shape[]{first, null, first, second}));
+    }
+
+    private static long hashFromScratch(BitBoard board) {
+        long hash = 0L;
+        for (int y = 0; y < board.size; ++y)
+            for (int x = 0; x < board.size; ++x)
+                if (!board.isEmpty(x, y))
+                    hash ^= board.placements.cellKeys[y * board.size + x];
+
+        return hash;
+    }
+}
@@ -0,0 +1,92 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.serializer;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import dev.lonami.klooni.engine.BitBoard;
+import dev.lonami.klooni.engine.Shape;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class BinSerializerTest {
+
+    // The header every save starts with, "klooni\n"
+    private static final byte[] HEADER = {0x6B, 0x6C, 0x6F, 0x6F, 0x6E, 0x69, 0xa};
+
+    // A board saved by the oldest version is read as it was,
+    // and saving it again with the current one keeps it the same
+    @Test
+    public void migratesTheOldestVersion() throws IOException {
+        final Random random = new Random(1010);
+        final int[] colors = new int[10 * 10];
+        for (int i = 0; i < colors.length; ++i)
+            colors[i] = random.nextBoolean() ? -1 : random.nextInt(Shape.COUNT);
+
+        final BitBoard old = new BitBoard(10);
+        BinSerializer.deserialize(old, new ByteArrayInputStream(oldestSave(colors)));
+        assertColors(colors, old);
+
+        final BitBoard migrated = new BitBoard(10);
+        BinSerializer.deserialize(migrated, new ByteArrayInputStream(BinSerializer.serialize(old)));
+        assertColors(colors, migrated);
+        assertEquals(old.getHash(), migrated.getHash());
+        assertEquals(old.filledCount(), migrated.filledCount());
+    }
+
+    // The oldest version saved a whole int per color, which must still be a valid one
+    @Test
+    public void rejectsInvalidColorsOnTheOldestVersion() throws IOException {
+        final int[] colors = new int[10 * 10];
+        for (int i = 0; i < colors.length; ++i)
+            colors[i] = -1;
+
+        colors[42] = Shape.COUNT;
+        try {
+            BinSerializer.deserialize(new BitBoard(10), new ByteArrayInputStream(oldestSave(colors)));
+            fail("The invalid color was read");
+        } catch (IOException expected) {
+        }
+    }
+
+    // A save as the oldest version wrote it: the header, the version
+    // and then the color of every cell as an int (negative if empty)
+    private static byte[] oldestSave(int[] colors) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.write(HEADER);
+        out.writeInt(BinSerializer.OLDEST_VERSION);
+        for (int color : colors)
+            out.writeInt(color);
+
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private static void assertColors(int[] expected, BitBoard board) {
+        for (int i = 0; i < expected.length; ++i)
+            assertEquals("Cell #" + i, expected[i] < 0 ? -1 : expected[i], board.getColor(i % 10, i / 10));
+    }
+}
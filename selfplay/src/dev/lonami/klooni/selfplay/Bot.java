@@ -0,0 +1,145 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.selfplay;
+
+import java.io.IOException;
+import java.util.Random;
+
+import dev.lonami.klooni.engine.BitBoard;
+import dev.lonami.klooni.engine.GameState;
+import dev.lonami.klooni.engine.ReplayWriter;
+import dev.lonami.klooni.engine.Shape;
+import dev.lonami.klooni.engine.Solution;
+import dev.lonami.klooni.engine.Solver;
+
+// Something that plays the game, one move at a time.
+// Every thread needs its own bot, since they keep some state.
+abstract class Bot {
+
+    // Where the moves of the current game are recorded, if anywhere
+    ReplayWriter replay;
+
+    // Makes a single move on the game, returning how many lines were
+    // cleared or -1 if the bot found no move (which ends the game)
+    abstract int move(final GameState game, final Random random);
+
+    // Called before every game starts
+    void newGame() {
+    }
+
+    // Frees any resource the bot used
+    void dispose() {
+    }
+
+    // Puts the shape on the given slot, recording the move if it could be made
+    final int put(final GameState game, int slot, int x, int y) {
+        final int cleared = game.put(slot, x, y);
+        if (cleared >= 0 && replay != null) {
+            try {
+                replay.appendPut(slot, x, y);
+            } catch (IOException e) {
+                throw new RuntimeException("Could not record the move.", e);
+            }
+        }
+        return cleared;
+    }
+
+    //region Implementations
+
+    // Puts a random shape on a random place, every legal move equally likely
+    static class RandomBot extends Bot {
+        private int[][] entries;
+        private int[] counts;
+
+        @Override
+        int move(final GameState game, final Random random) {
+            final BitBoard board = game.board;
+            if (entries == null) {
+                entries = new int[game.getHandSize()][board.size * board.size];
+                counts = new int[game.getHandSize()];
+            }
+
+            int total = 0;
+            for (int slot = 0; slot < counts.length; ++slot) {
+                final Shape shape = game.getShape(slot);
+                counts[slot] = shape == null ? 0 : board.findPlacements(shape, entries[slot]);
+                total += counts[slot];
+            }
+            if (total == 0)
+                return -1;
+
+            int pick = random.nextInt(total);
+            int slot = 0;
+            while (pick >= counts[slot])
+                pick -= counts[slot++];
+
+            final Shape shape = game.getShape(slot);
+            final int entry = entries[slot][pick];
+            return put(game, slot, board.placements.getX(shape, entry), board.placements.getY(shape, entry));
+        }
+    }
+
+    // Plans the whole hand with a Solver and then follows the plan
+    static class SolverBot extends Bot {
+        private final Solver solver;
+        private final long budgetMillis;
+
+        private Solution plan;
+        private int next;
+
+        SolverBot(int width, boolean lookahead, long budgetMillis) {
+            // The harness already uses every core, so one thread per bot is enough
+            solver = new Solver(1);
+            solver.setWidth(width);
+            solver.setLookahead(lookahead);
+            this.budgetMillis = budgetMillis;
+        }
+
+        @Override
+        void newGame() {
+            plan = null;
+        }
+
+        @Override
+        int move(final GameState game, final Random random) {
+            if (plan == null || next == plan.getMoveCount()) {
+                final Shape[] hand = new Shape[game.getHandSize()];
+                for (int i = 0; i < hand.length; ++i)
+                    hand[i] = game.getShape(i);
+
+                plan = solver.solve(game.board, hand, budgetMillis);
+                next = 0;
+                if (plan == null || plan.getMoveCount() == 0) {
+                    plan = null;
+                    return -1;
+                }
+            }
+
+            final int cleared = put(game, plan.slots[next], plan.xs[next], plan.ys[next]);
+            next++;
+            return cleared;
+        }
+
+        @Override
+        void dispose() {
+            solver.shutdown();
+        }
+    }
+
+    //endregion
+}
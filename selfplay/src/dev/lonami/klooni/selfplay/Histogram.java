@@ -0,0 +1,133 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.selfplay;
+
+import java.io.PrintStream;
+import java.util.Locale;
+
+// Counts how many values fall in every bucket of a given width, so the
+// distribution of any amount of values can be kept in constant memory
+// (as long as the values themselves are bounded, which they are here).
+class Histogram {
+
+    //region Members
+
+    private final int bucketWidth;
+    private long[] buckets;
+
+    private long count;
+    private double sum;
+    private double sumSquares;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    //endregion
+
+    //region Constructor
+
+    Histogram(int bucketWidth) {
+        this.bucketWidth = bucketWidth;
+        buckets = new long[16];
+    }
+
+    //endregion
+
+    //region Package local methods
+
+    void add(long value) {
+        final int bucket = (int) (value / bucketWidth);
+        if (bucket >= buckets.length) {
+            final long[] grown = new long[Math.max(bucket + 1, buckets.length * 2)];
+            System.arraycopy(buckets, 0, grown, 0, buckets.length);
+            buckets = grown;
+        }
+        buckets[bucket]++;
+
+        count++;
+        sum += value;
+        sumSquares += (double) value * value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    void merge(final Histogram other) {
+        if (other.buckets.length > buckets.length) {
+            final long[] grown = new long[other.buckets.length];
+            System.arraycopy(buckets, 0, grown, 0, buckets.length);
+            buckets = grown;
+        }
+        for (int i = 0; i < other.buckets.length; ++i)
+            buckets[i] += other.buckets[i];
+
+        count += other.count;
+        sum += other.sum;
+        sumSquares += other.sumSquares;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    double getMean() {
+        return count == 0 ? 0 : sum / count;
+    }
+
+    double getDeviation() {
+        if (count == 0)
+            return 0;
+
+        final double mean = getMean();
+        return Math.sqrt(Math.max(sumSquares / count - mean * mean, 0));
+    }
+
+    // The value below which the given fraction of values fall
+    // (only as precise as the width of the buckets)
+    long percentile(double fraction) {
+        final long target = (long) Math.ceil(fraction * count);
+        long seen = 0;
+        for (int i = 0; i < buckets.length; ++i) {
+            seen += buckets[i];
+            if (seen >= target && seen > 0)
+                return Math.min((long) (i + 1) * bucketWidth, max);
+        }
+        return max;
+    }
+
+    // How many values are at least the given one (rounded down to its bucket)
+    long countAtLeast(long value) {
+        long result = 0;
+        for (int i = (int) (value / bucketWidth); i < buckets.length; ++i)
+            result += buckets[i];
+
+        return result;
+    }
+
+    void print(final PrintStream out, final String name) {
+        if (count == 0) {
+            out.printf(Locale.ROOT, "%-16s no data%n", name);
+            return;
+        }
+        out.printf(Locale.ROOT, "%-16s mean %10.2f  sd %10.2f  min %8d  p10 %8d  p50 %8d  p90 %8d  p99 %8d  max %8d%n",
+                name, getMean(), getDeviation(), min,
+                percentile(0.1), percentile(0.5), percentile(0.9), percentile(0.99), max);
+    }
+
+    //endregion
+}
@@ -0,0 +1,141 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.selfplay;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Locale;
+
+import dev.lonami.klooni.engine.GameState;
+import dev.lonami.klooni.engine.ReplayReader;
+import dev.lonami.klooni.engine.Shape;
+
+// Plays back replays without anything on screen, as fast as they can be read,
+// and prints how every game ended (its moves, score, whether it was over, and
+// the hash of the board and the hand) so it can be compared with what was seen.
+// Replays are read straight from disk, so they can have any number of moves.
+//
+// The score is calculated with the current rules, so playing back old replays
+// shows how a change of the rules would have changed them. A replay which can't
+// be played back (a move can't be made) is reported as invalid.
+public class Playback {
+
+    //region Members
+
+    private int repeat = 1;
+    private boolean quiet;
+
+    private long totalMoves;
+    private int invalid;
+
+    //endregion
+
+    //region Main
+
+    public static void main(String[] args) {
+        final Playback playback = new Playback();
+        final int first = playback.parse(args);
+        if (first < 0 || first == args.length) {
+            printUsage();
+            System.exit(1);
+        }
+
+        final long start = System.nanoTime();
+        for (int i = first; i < args.length; ++i)
+            playback.play(new File(args[i]));
+
+        final double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf(Locale.ROOT, "%d moves in %.2fs, %.0f moves/s%n",
+                playback.totalMoves, seconds, playback.totalMoves / seconds);
+
+        if (playback.invalid != 0)
+            System.exit(2);
+    }
+
+    private static void printUsage() {
+        System.err.println("usage: Playback [options] replay...");
+        System.err.println("  --repeat N            play every replay N times, to time it (1)");
+        System.err.println("  --quiet               only print the replays that are invalid");
+    }
+
+    //endregion
+
+    //region Arguments
+
+    // Returns the index of the first replay, or -1 if the arguments are wrong
+    private int parse(String[] args) {
+        try {
+            int i = 0;
+            for (; i < args.length && args[i].startsWith("--"); ++i) {
+                if (args[i].equals("--quiet")) {
+                    quiet = true;
+                } else if (args[i].equals("--repeat") && i + 1 < args.length) {
+                    repeat = Integer.parseInt(args[++i]);
+                } else {
+                    return -1;
+                }
+            }
+            return repeat > 0 ? i : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    //endregion
+
+    //region Playing
+
+    private void play(final File file) {
+        try {
+            GameState game = null;
+            long moves = 0;
+            for (int i = 0; i < repeat; ++i) {
+                final ReplayReader replay = new ReplayReader(new FileInputStream(file));
+                try {
+                    game = replay.newGame();
+                    moves = replay.playAll(game);
+                    totalMoves += moves;
+                } finally {
+                    replay.close();
+                }
+            }
+
+            if (!quiet) {
+                System.out.printf(Locale.ROOT, "%s: %d moves, score %d, %s, hash %016x%n",
+                        file, moves, game.getScore(), game.isGameOver() ? "game over" : "not over",
+                        hash(game));
+            }
+        } catch (IOException e) {
+            invalid++;
+            System.out.println(file + ": invalid, " + e.getMessage());
+        }
+    }
+
+    // Hashes the board along with the shapes left on the hand
+    private static long hash(final GameState game) {
+        long hash = game.board.getHash();
+        for (int slot = 0; slot < game.getHandSize(); ++slot) {
+            final Shape shape = game.getShape(slot);
+            hash = hash * 31 + (shape == null ? -1 : shape.pack());
+        }
+        return hash;
+    }
+
+    //endregion
+}
@@ -0,0 +1,322 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.selfplay;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import dev.lonami.klooni.engine.GameState;
+import dev.lonami.klooni.engine.Placements;
+import dev.lonami.klooni.engine.ReplayWriter;
+import dev.lonami.klooni.engine.Rules;
+import dev.lonami.klooni.engine.Shape;
+import dev.lonami.klooni.engine.SplitMixRandom;
+
+// Plays lots of games with a bot on every core, and prints how they went
+// (scores, game lengths, how often lines are cleared, which shapes are
+// dealt and which end the games, and how long games last on time mode).
+//
+// Every game is played with its own seed (the base seed plus its index),
+// so the same arguments always give the same results no matter how many
+// threads are used (as long as the bot isn't stopped by its time budget).
+// The pieces come from that seed alone and the bot has a stream of its own,
+// so games can be recorded as replays and played back later (see Playback).
+public class SelfPlay {
+
+    //region Members
+
+    private long games = 10000;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private long seed = 1010;
+    private int boardSize = Placements.DEFAULT_SIZE;
+    private int handSize = 3;
+
+    private String bot = "random";
+    private int width = 8;
+    private boolean lookahead;
+    private long budgetMillis = 1000;
+
+    // The time mode gives 30 seconds to start with, and every point from
+    // clearing lines gives 0.2 seconds more (as the TimeScorer does). How
+    // long players take to make a move is not known, so it can be given.
+    private boolean timeMode;
+    private double startSeconds = 30;
+    private double secondsPerPoint = 0.2;
+    private double secondsPerMove = 2;
+
+    // Every game is recorded as a replay on this folder, if given
+    private File recordFolder;
+
+    private final AtomicLong nextGame = new AtomicLong();
+    private final Stats total = new Stats();
+
+    //endregion
+
+    //region Static members
+
+    // How many games a thread plays before adding its results to the total
+    private static final int GAMES_PER_MERGE = 1000;
+
+    private static final long PROGRESS_MILLIS = 5000;
+
+    //endregion
+
+    //region Main
+
+    public static void main(String[] args) throws InterruptedException {
+        final SelfPlay selfPlay = new SelfPlay();
+        if (!selfPlay.parse(args)) {
+            printUsage();
+            System.exit(1);
+        }
+        selfPlay.run();
+    }
+
+    private static void printUsage() {
+        System.err.println("usage: SelfPlay [options]");
+        System.err.println("  --games N             games to play (10000)");
+        System.err.println("  --threads N           threads to use (all the cores)");
+        System.err.println("  --seed N              base seed, game i uses seed + i (1010)");
+        System.err.println("  --board N             board size (10)");
+        System.err.println("  --hand N              shapes per hand (3)");
+        System.err.println("  --bot random|solver   who plays (random)");
+        System.err.println("  --width N             solver beam width (8)");
+        System.err.println("  --lookahead           solver looks at the next shape");
+        System.err.println("  --budget MS           solver time per hand (1000)");
+        System.err.println("  --time                play the time mode");
+        System.err.println("  --start-seconds S     time mode initial time (30)");
+        System.err.println("  --seconds-per-point S time mode extra time per cleared point (0.2)");
+        System.err.println("  --seconds-per-move S  time mode time a move takes (2)");
+        System.err.println("  --record DIR          record every game as a replay on DIR");
+    }
+
+    //endregion
+
+    //region Arguments
+
+    private boolean parse(String[] args) {
+        try {
+            for (int i = 0; i < args.length; ++i) {
+                final String arg = args[i];
+                if (arg.equals("--lookahead")) {
+                    lookahead = true;
+                } else if (arg.equals("--time")) {
+                    timeMode = true;
+                } else if (i + 1 == args.length) {
+                    return false;
+                } else if (arg.equals("--games")) {
+                    games = Long.parseLong(args[++i]);
+                } else if (arg.equals("--threads")) {
+                    threads = Integer.parseInt(args[++i]);
+                } else if (arg.equals("--seed")) {
+                    seed = Long.parseLong(args[++i]);
+                } else if (arg.equals("--board")) {
+                    boardSize = Integer.parseInt(args[++i]);
+                } else if (arg.equals("--hand")) {
+                    handSize = Integer.parseInt(args[++i]);
+                } else if (arg.equals("--bot")) {
+                    bot = args[++i];
+                } else if (arg.equals("--width")) {
+                    width = Integer.parseInt(args[++i]);
+                } else if (arg.equals("--budget")) {
+                    budgetMillis = Long.parseLong(args[++i]);
+                } else if (arg.equals("--start-seconds")) {
+                    startSeconds = Double.parseDouble(args[++i]);
+                } else if (arg.equals("--seconds-per-point")) {
+                    secondsPerPoint = Double.parseDouble(args[++i]);
+                } else if (arg.equals("--seconds-per-move")) {
+                    secondsPerMove = Double.parseDouble(args[++i]);
+                } else if (arg.equals("--record")) {
+                    recordFolder = new File(args[++i]);
+                } else {
+                    return false;
+                }
+            }
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        return games > 0 && threads > 0 && (bot.equals("random") || bot.equals("solver"));
+    }
+
+    private Bot createBot() {
+        return bot.equals("solver")
+                ? new Bot.SolverBot(width, lookahead, budgetMillis)
+                : new Bot.RandomBot();
+    }
+
+    //endregion
+
+    //region Playing
+
+    private void run() throws InterruptedException {
+        if (recordFolder != null && !recordFolder.isDirectory() && !recordFolder.mkdirs()) {
+            System.err.println("cannot create " + recordFolder);
+            System.exit(1);
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; ++i) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    playGames();
+                }
+            });
+        }
+        executor.shutdown();
+
+        final long start = System.currentTimeMillis();
+        while (!executor.awaitTermination(PROGRESS_MILLIS, TimeUnit.MILLISECONDS)) {
+            final long played;
+            synchronized (total) {
+                played = total.games;
+            }
+            final double seconds = (System.currentTimeMillis() - start) / 1000.0;
+            System.err.printf(Locale.ROOT, "%d/%d games, %.0f games/s%n", played, games, played / seconds);
+        }
+
+        System.err.printf(Locale.ROOT, "done in %.1fs%n%n", (System.currentTimeMillis() - start) / 1000.0);
+        total.print(System.out);
+    }
+
+    // Run by every thread until there are no more games to play
+    private void playGames() {
+        final Bot bot = createBot();
+        final Random pieces = new SplitMixRandom(seed);
+        final Random choices = new SplitMixRandom(seed);
+        Stats stats = new Stats();
+        try {
+            long game;
+            while ((game = nextGame.getAndIncrement()) < games) {
+                // The bot's stream is split from one with the same seed,
+                // so whatever the bot does doesn't change the pieces
+                pieces.setSeed(seed + game);
+                choices.setSeed(seed + game);
+                choices.setSeed(choices.nextLong());
+                if (recordFolder != null)
+                    record(bot, game);
+
+                play(bot, pieces, choices, stats);
+                stopRecording(bot);
+                if (stats.games == GAMES_PER_MERGE) {
+                    merge(stats);
+                    stats = new Stats();
+                }
+            }
+            merge(stats);
+        } finally {
+            bot.dispose();
+        }
+    }
+
+    private void record(final Bot bot, long game) {
+        final File file = new File(recordFolder, "game" + game + ".replay");
+        try {
+            bot.replay = new ReplayWriter(new BufferedOutputStream(new FileOutputStream(file)));
+            // The game modes are numbered as the game screen does
+            bot.replay.start(timeMode ? 1 : 0, boardSize, handSize, seed + game);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not record " + file, e);
+        }
+    }
+
+    private static void stopRecording(final Bot bot) {
+        if (bot.replay != null) {
+            try {
+                bot.replay.close();
+            } catch (IOException e) {
+                throw new RuntimeException("Could not record the game.", e);
+            }
+            bot.replay = null;
+        }
+    }
+
+    private void merge(final Stats stats) {
+        synchronized (total) {
+            total.merge(stats);
+        }
+    }
+
+    private void play(final Bot bot, final Random pieces, final Random choices, final Stats stats) {
+        final GameState game = new GameState(boardSize, handSize, pieces);
+        bot.newGame();
+        dealt(game, stats);
+
+        double deadline = startSeconds;
+        int moves = 0;
+        boolean timedOut = false;
+        while (!game.isGameOver()) {
+            if (timeMode && (moves + 1) * secondsPerMove > deadline) {
+                timedOut = true;
+                break;
+            }
+
+            final int cleared = bot.move(game, choices);
+            if (cleared < 0)
+                break;
+
+            moves++;
+            stats.addMove(cleared);
+            if (timeMode)
+                deadline += Rules.calculateClearScore(cleared, boardSize) * secondsPerPoint;
+
+            if (handRefilled(game))
+                dealt(game, stats);
+        }
+
+        stats.games++;
+        stats.scores.add(game.getScore());
+        stats.lengths.add(moves);
+        if (timedOut) {
+            stats.timedOut++;
+        } else {
+            for (int slot = 0; slot < game.getHandSize(); ++slot)
+                if (game.getShape(slot) != null)
+                    stats.stuck[game.getShape(slot).id]++;
+        }
+        if (timeMode)
+            stats.survival.add((long) (timedOut ? deadline : moves * secondsPerMove));
+    }
+
+    // The hand is only full right after being dealt, since there's
+    // always one shape less after every move until it's refilled
+    private static boolean handRefilled(final GameState game) {
+        for (int slot = 0; slot < game.getHandSize(); ++slot)
+            if (game.getShape(slot) == null)
+                return false;
+
+        return true;
+    }
+
+    private static void dealt(final GameState game, final Stats stats) {
+        for (int slot = 0; slot < game.getHandSize(); ++slot) {
+            final Shape shape = game.getShape(slot);
+            stats.dealt[shape.id]++;
+        }
+    }
+
+    //endregion
+}
@@ -0,0 +1,125 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.selfplay;
+
+import java.io.PrintStream;
+import java.util.Locale;
+
+import dev.lonami.klooni.engine.Shape;
+
+// Aggregated results of any amount of games. Nothing about the
+// individual games is kept, so memory use doesn't depend on how
+// many games are played.
+class Stats {
+
+    //region Members
+
+    long games;
+    long moves;
+
+    final Histogram scores = new Histogram(10);
+    final Histogram lengths = new Histogram(1);
+
+    // How many moves cleared exactly as many lines as the index
+    final long[] linesPerMove = new long[MAX_LINES + 1];
+
+    // How many times every shape was dealt, and how many times it
+    // was in the hand when the game was over because nothing could be put
+    final long[] dealt = new long[Shape.ALL.length];
+    final long[] stuck = new long[Shape.ALL.length];
+
+    // Only for the time mode, in seconds, and how many games ran out of time
+    final Histogram survival = new Histogram(1);
+    long timedOut;
+
+    //endregion
+
+    //region Static members
+
+    // A shape can't complete more lines than rows and columns it has
+    private static final int MAX_LINES = 10;
+
+    //endregion
+
+    //region Package local methods
+
+    void addMove(int cleared) {
+        moves++;
+        linesPerMove[Math.min(cleared, MAX_LINES)]++;
+    }
+
+    void merge(final Stats other) {
+        games += other.games;
+        moves += other.moves;
+        scores.merge(other.scores);
+        lengths.merge(other.lengths);
+        survival.merge(other.survival);
+        timedOut += other.timedOut;
+        for (int i = 0; i <= MAX_LINES; ++i)
+            linesPerMove[i] += other.linesPerMove[i];
+        for (int i = 0; i < dealt.length; ++i) {
+            dealt[i] += other.dealt[i];
+            stuck[i] += other.stuck[i];
+        }
+    }
+
+    void print(final PrintStream out) {
+        out.printf(Locale.ROOT, "games %d, moves %d%n%n", games, moves);
+        scores.print(out, "score");
+        lengths.print(out, "moves per game");
+
+        long clears = 0;
+        for (int i = 1; i <= MAX_LINES; ++i)
+            clears += i * linesPerMove[i];
+
+        out.printf(Locale.ROOT, "%nlines cleared per move: %.4f%n", moves == 0 ? 0 : clears / (double) moves);
+        for (int i = 0; i <= MAX_LINES; ++i)
+            if (linesPerMove[i] != 0)
+                out.printf(Locale.ROOT, "  %2d lines  %8.4f%%%n", i, percent(linesPerMove[i], moves));
+
+        long totalDealt = 0;
+        for (long count : dealt)
+            totalDealt += count;
+
+        out.printf(Locale.ROOT, "%nshape (kind, rotation)   dealt    in hand on game over%n");
+        for (Shape shape : Shape.ALL)
+            out.printf(Locale.ROOT, "  %d, %d                  %7.3f%%  %7.3f%%%n",
+                    shape.colorIndex, shape.rotation,
+                    percent(dealt[shape.id], totalDealt), percent(stuck[shape.id], games));
+
+        if (survival.getCount() != 0) {
+            out.printf(Locale.ROOT, "%ntime mode, %.2f%% of the games ran out of time%n", percent(timedOut, games));
+            survival.print(out, "seconds alive");
+            out.printf(Locale.ROOT, "  seconds   alive%n");
+            final long last = survival.percentile(1);
+            final long step = Math.max(10, (last / 20 + 9) / 10 * 10);
+            for (long t = 0; t <= last; t += step)
+                out.printf(Locale.ROOT, "  %7d  %7.3f%%%n", t, percent(survival.countAtLeast(t), survival.getCount()));
+        }
+    }
+
+    //endregion
+
+    //region Private methods
+
+    private static double percent(long count, long total) {
+        return total == 0 ? 0 : 100.0 * count / total;
+    }
+
+    //endregion
+}